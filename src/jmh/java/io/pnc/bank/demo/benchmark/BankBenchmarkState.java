@@ -0,0 +1,125 @@
+package io.pnc.bank.demo.benchmark;
+
+import io.pnc.bank.demo.BankDemoApplication;
+import io.pnc.bank.demo.model.AccountType;
+import io.pnc.bank.demo.model.TransactionType;
+import io.pnc.bank.demo.service.DailyRollupService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Boots the application once per fork against a private in-memory H2 database and seeds it with
+// accountCount accounts and transactionCount transactions spread over the last historyDays days.
+// Seeding uses plain JDBC batches so that large sizes (millions of rows) load in reasonable time.
+@State(Scope.Benchmark)
+public class BankBenchmarkState {
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+    private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+    @Param({"10000"})
+    public int transactionCount;
+
+    @Param({"1000"})
+    public int accountCount;
+
+    @Param({"365"})
+    public int historyDays;
+
+    public ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("demo")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;LOCK_TIMEOUT=10000",
+                        "spring.jpa.show-sql=false",
+                        "spring.main.banner-mode=off",
+                        "demo.data.initialize=false",
+                        "bank.sql.statement-budget.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.io.pnc.bank=WARN",
+                        "logging.level.org.springframework=WARN")
+                .run();
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(DailyRollupService.class).rebuild(null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public String randomAccountNumber() {
+        return accountNumber(ThreadLocalRandom.current().nextInt(accountCount));
+    }
+
+    public static String accountNumber(int index) {
+        return String.format("%010d", 1_000_000_000L + index);
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        // Fixed seed, and dates anchored to the end of today because the benchmarks query windows
+        // ending today: every run measures the same rows at the same place in those windows
+        Random random = new Random(42);
+        LocalDateTime endOfToday = LocalDate.now().plusDays(1).atStartOfDay();
+        LocalDateTime createdDate = endOfToday.minusDays(historyDays + 1);
+
+        List<Object[]> accounts = new ArrayList<>(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add(new Object[]{(long) i + 1, accountNumber(i), "Benchmark Holder " + i,
+                    ACCOUNT_TYPES[i % ACCOUNT_TYPES.length].name(), new BigDecimal("1000000000.00"), Timestamp.valueOf(createdDate)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO accounts (id, account_number, account_holder, account_type, balance, " +
+                "created_date, last_modified_date, status, version) VALUES (?, ?, ?, ?, ?, ?, NULL, 'ACTIVE', 0)", accounts);
+
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < transactionCount; i++) {
+            LocalDateTime date = endOfToday.minusSeconds(1 + random.nextInt(historyDays * 86_400));
+            batch.add(new Object[]{(long) i + 1, (long) random.nextInt(accountCount) + 1,
+                    TRANSACTION_TYPES[random.nextInt(TRANSACTION_TYPES.length)].name(),
+                    BigDecimal.valueOf(1 + random.nextInt(100_000), 2),
+                    new UUID(random.nextLong(), random.nextLong()).toString(), "Benchmark transaction", Timestamp.valueOf(date)});
+            if (batch.size() == SEED_BATCH_SIZE) {
+                insertTransactions(jdbcTemplate, batch);
+                batch.clear();
+            }
+        }
+        insertTransactions(jdbcTemplate, batch);
+
+        // Move the pooled id sequences past the seeded rows (allocation size 50, see V3)
+        jdbcTemplate.execute("ALTER SEQUENCE accounts_seq RESTART WITH " + (accountCount + 50));
+        jdbcTemplate.execute("ALTER SEQUENCE transactions_seq RESTART WITH " + ((long) transactionCount + 50));
+    }
+
+    private void insertTransactions(JdbcTemplate jdbcTemplate, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO transactions (id, account_id, transaction_type, amount, reference_id, " +
+                    "description, transaction_date, balance_after_transaction) VALUES (?, ?, ?, ?, ?, ?, ?, NULL)", rows);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+package io.pnc.bank.demo.benchmark;
+
+import io.pnc.bank.demo.dto.DepositRequest;
+import io.pnc.bank.demo.dto.TransactionDTO;
+import io.pnc.bank.demo.dto.TransferRequest;
+import io.pnc.bank.demo.dto.WithdrawalRequest;
+import io.pnc.bank.demo.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Single postings through the service layer, including locking, rollups and the commit.
+// Run with -t N to measure contention; SampleTime reports p99 alongside throughput.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class PostingBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    private TransactionService transactionService;
+
+    @Setup
+    public void setUp(BankBenchmarkState state) {
+        transactionService = state.getBean(TransactionService.class);
+    }
+
+    @Benchmark
+    public TransactionDTO deposit(BankBenchmarkState state) {
+        return transactionService.deposit(new DepositRequest(state.randomAccountNumber(), AMOUNT, "Benchmark deposit"));
+    }
+
+    @Benchmark
+    public TransactionDTO withdraw(BankBenchmarkState state) {
+        return transactionService.withdraw(new WithdrawalRequest(state.randomAccountNumber(), AMOUNT, "Benchmark withdrawal"));
+    }
+
+    @Benchmark
+    public TransactionDTO transfer(BankBenchmarkState state) {
+        String from = state.randomAccountNumber();
+        String to = state.randomAccountNumber();
+        while (to.equals(from)) {
+            to = state.randomAccountNumber();
+        }
+        return transactionService.transfer(new TransferRequest(from, to, AMOUNT, "Benchmark transfer"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package io.pnc.bank.demo.benchmark;
+
+import io.pnc.bank.demo.service.ReportingService;
+import io.pnc.bank.demo.service.TransactionService;
+import io.pnc.bank.demo.util.CountingOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Read paths over the seeded history: the dashboard daily summary and a full CSV report over
+// the last reportDays days, written to a discarding stream.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ReportingBenchmark {
+
+    @Param({"30"})
+    public int reportDays;
+
+    private TransactionService transactionService;
+    private ReportingService reportingService;
+
+    @Setup
+    public void setUp(BankBenchmarkState state) {
+        transactionService = state.getBean(TransactionService.class);
+        reportingService = state.getBean(ReportingService.class);
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> dailySummary() {
+        return transactionService.getDailyTransactionSummary(LocalDate.now());
+    }
+
+    @Benchmark
+    public long transactionReport() throws IOException {
+        LocalDate endDate = LocalDate.now();
+        CountingOutputStream output = new CountingOutputStream(OutputStream.nullOutputStream());
+        reportingService.writeTransactionReport(endDate.minusDays(reportDays - 1), endDate, "csv", output);
+        return output.getCount();
+    }
+}
\ No newline at end of file
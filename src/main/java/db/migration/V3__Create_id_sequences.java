@@ -0,0 +1,35 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+// Sequences backing pooled id allocation for accounts and transactions. Written in Java because
+// each sequence has to start past the ids already handed out by the identity columns, which plain
+// SQL cannot express portably across H2 and PostgreSQL.
+public class V3__Create_id_sequences extends BaseJavaMigration {
+
+    // Must match allocationSize on the entities' @SequenceGenerator
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            createSequence(statement, "accounts");
+            createSequence(statement, "transactions");
+        }
+    }
+
+    private void createSequence(Statement statement, String table) throws Exception {
+        long maxId;
+        try (ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            resultSet.next();
+            maxId = resultSet.getLong(1);
+        }
+        // The pooled optimizer hands out (value - ALLOCATION_SIZE, value], so the first id is maxId + 1
+        statement.execute("CREATE SEQUENCE " + table + "_seq START WITH " + (maxId + ALLOCATION_SIZE)
+                + " INCREMENT BY " + ALLOCATION_SIZE);
+    }
+}
@@ -0,0 +1,631 @@
+package io.pnc.bank.demo.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.pnc.bank.demo.cache.BoundedTtlCache;
+import io.pnc.bank.demo.dto.TransactionDTO;
+import io.pnc.bank.demo.model.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Cold tier for transactions dated before the hot horizon. Each archived month is one append-only
+// segment under bank.archive.directory holding the month's rows ordered by account, date and id,
+// tab-separated, in independently gzipped blocks of bank.archive.block-rows rows (so the file as a
+// whole is still plain gzip). A .idx file next to it records each block's account id range and
+// byte range, so one account's rows are read by inflating only the blocks that hold it. A .ids file
+// lists the month's (id, account id) pairs in id order as fixed 16-byte records, so a row is found
+// by id with a binary search there and a read of that account's blocks.
+// manifest.json lists the segments and the horizon; it is replaced atomically, after the segment
+// files are in place, and is the only thing readers trust.
+@Component
+@Slf4j
+public class TransactionArchive {
+
+    public record Segment(YearMonth month, String file, long rows, long bytes, LocalDateTime createdAt) {
+    }
+
+    public record Manifest(LocalDate horizon, List<Segment> segments) {
+    }
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void row(TransactionDTO row) throws IOException;
+    }
+
+    private record Block(long firstAccountId, long lastAccountId, long offset, int length) {
+    }
+
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final int ID_ENTRY_BYTES = 16;
+    private static final String NULL = "\\N";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final int blockRows;
+
+    private volatile Manifest manifest = new Manifest(null, List.of());
+    private final Map<YearMonth, List<Block>> blockIndexes = new ConcurrentHashMap<>();
+    // Archived row counts per account id; the archive only changes on commit, which clears it
+    private final BoundedTtlCache<Long, Long> accountCounts = new BoundedTtlCache<>(100_000, Duration.ofDays(1));
+
+    private final LongAdder accountReads = new LongAdder();
+    private final LongAdder blocksInflated = new LongAdder();
+    private final LongAdder rowsRead = new LongAdder();
+
+    public TransactionArchive(ObjectMapper objectMapper,
+                              @Value("${bank.archive.directory:archive}") Path directory,
+                              @Value("${bank.archive.block-rows:4096}") int blockRows) throws IOException {
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.blockRows = blockRows;
+        Path manifestFile = directory.resolve(MANIFEST_FILE);
+        if (Files.exists(manifestFile)) {
+            manifest = objectMapper.readValue(manifestFile.toFile(), Manifest.class);
+            log.info("Transaction archive at {}: {} segments, horizon {}",
+                    directory.toAbsolutePath(), manifest.segments().size(), manifest.horizon());
+        }
+    }
+
+    // Rows dated before this instant live in the archive only; null until something is archived
+    public LocalDateTime getHorizon() {
+        LocalDate horizon = manifest.horizon();
+        return horizon != null ? horizon.atStartOfDay() : null;
+    }
+
+    // The month's rows must arrive ordered by account id, transaction date and id
+    public SegmentWriter openSegment(YearMonth month) throws IOException {
+        Files.createDirectories(directory);
+        return new SegmentWriter(month);
+    }
+
+    // Publishes the written segments and moves the horizon forward
+    public synchronized void commit(List<Segment> added, LocalDate horizon) throws IOException {
+        List<Segment> segments = new ArrayList<>(manifest.segments());
+        segments.addAll(added);
+        Manifest updated = new Manifest(horizon, List.copyOf(segments));
+        Path temporary = directory.resolve(MANIFEST_FILE + ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(temporary.toFile(), updated);
+        Files.move(temporary, directory.resolve(MANIFEST_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        manifest = updated;
+        accountCounts.clear();
+    }
+
+    // One account's archived rows in [from, to), oldest first, handed over as each block is
+    // inflated so the heap never holds more than one block; either bound may be null
+    public void scanAccount(long accountId, LocalDateTime from, LocalDateTime to, RowHandler handler) throws IOException {
+        List<Segment> segments = segmentsBetween(from, to);
+        if (segments.isEmpty()) {
+            return;
+        }
+        accountReads.increment();
+        for (Segment segment : segments) {
+            readAccount(segment, accountId, row -> {
+                if (inRange(row, from, to)) {
+                    handler.row(row);
+                }
+            });
+        }
+    }
+
+    // One account's archived rows that come after a position in newest-first order: dated before
+    // beforeDate, or on it with an id below beforeId when that is given. Rows are returned newest
+    // first, after skipping `skip` of them. Months are read from the newest back, one at a time,
+    // and reading stops once `limit` rows are found, so a page holds at most one account-month
+    // in memory besides the page itself.
+    public List<TransactionDTO> findLatestByAccount(long accountId, LocalDateTime beforeDate, Long beforeId,
+                                                    long skip, int limit) {
+        List<TransactionDTO> result = new ArrayList<>();
+        List<Segment> segments = new ArrayList<>(segmentsBetween(null, beforeId != null ? beforeDate.plusNanos(1) : beforeDate));
+        if (segments.isEmpty() || limit <= 0) {
+            return result;
+        }
+        segments.sort(Comparator.comparing(Segment::month).reversed());
+        accountReads.increment();
+        long skipped = 0;
+        try {
+            for (Segment segment : segments) {
+                List<TransactionDTO> month = new ArrayList<>();
+                readAccount(segment, accountId, row -> {
+                    if (row.getTransactionDate().isBefore(beforeDate) || beforeId != null
+                            && row.getTransactionDate().isEqual(beforeDate) && row.getId() < beforeId) {
+                        month.add(row);
+                    }
+                });
+                for (int i = month.size() - 1; i >= 0 && result.size() < limit; i--) {
+                    if (skipped < skip) {
+                        skipped++;
+                    } else {
+                        result.add(month.get(i));
+                    }
+                }
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read the transaction archive", ex);
+        }
+        return result;
+    }
+
+    public Optional<TransactionDTO> findById(long id) {
+        try {
+            for (Segment segment : manifest.segments()) {
+                List<TransactionDTO> found = new ArrayList<>(1);
+                RowHandler match = row -> {
+                    if (row.getId() == id) {
+                        found.add(row);
+                    }
+                };
+                Path ids = directory.resolve(idsFile(segment.file()));
+                if (Files.exists(ids)) {
+                    Long accountId = findAccountId(ids, id);
+                    if (accountId != null) {
+                        readAccount(segment, accountId, match);
+                    }
+                } else {
+                    // Segments written before .ids files existed are read whole
+                    readSegment(segment, match);
+                }
+                if (!found.isEmpty()) {
+                    return Optional.of(found.get(0));
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read the transaction archive", ex);
+        }
+        return Optional.empty();
+    }
+
+    public long countByAccount(long accountId) {
+        if (manifest.segments().isEmpty()) {
+            return 0;
+        }
+        Long count = accountCounts.get(accountId);
+        if (count == null) {
+            long[] rows = {0};
+            forEachAccountRow(accountId, null, null, row -> rows[0]++);
+            count = rows[0];
+            accountCounts.put(accountId, count);
+        }
+        return count;
+    }
+
+    // Credits minus debits of one account's archived rows in [from, to)
+    public BigDecimal sumNetAmount(long accountId, LocalDateTime from, LocalDateTime to) {
+        BigDecimal[] net = {BigDecimal.ZERO};
+        forEachAccountRow(accountId, from, to, row -> net[0] = row.getTransactionType().isCredit()
+                ? net[0].add(row.getAmount()) : net[0].subtract(row.getAmount()));
+        return net[0];
+    }
+
+    // Every archived row in [from, to), month by month; within a month rows come in account order
+    public void scan(LocalDateTime from, LocalDateTime to, RowHandler handler) throws IOException {
+        for (Segment segment : segmentsBetween(from, to)) {
+            readSegment(segment, row -> {
+                if (inRange(row, from, to)) {
+                    handler.row(row);
+                }
+            });
+        }
+    }
+
+    // Every archived row in [from, to) in (date, id) order, as the hot table's report cursor returns
+    // them. Segments hold a month in account order, so each month is first split into one temporary
+    // file per day under the archive directory; days are then sorted one at a time, so the heap
+    // holds at most the busiest day's rows.
+    public void scanInDateOrder(LocalDateTime from, LocalDateTime to, RowHandler handler) throws IOException {
+        for (Segment segment : segmentsBetween(from, to)) {
+            Path spill = Files.createTempDirectory(directory, "scan-");
+            try {
+                Map<LocalDate, Writer> days = new TreeMap<>();
+                try {
+                    readSegment(segment, row -> {
+                        if (inRange(row, from, to)) {
+                            LocalDate date = row.getTransactionDate().toLocalDate();
+                            Writer day = days.get(date);
+                            if (day == null) {
+                                day = Files.newBufferedWriter(spill.resolve(date + ".tsv"), StandardCharsets.UTF_8);
+                                days.put(date, day);
+                            }
+                            format(day, row);
+                        }
+                    });
+                } finally {
+                    for (Writer day : days.values()) {
+                        day.close();
+                    }
+                }
+                for (LocalDate date : days.keySet()) {
+                    List<TransactionDTO> rows = new ArrayList<>();
+                    try (BufferedReader reader = Files.newBufferedReader(spill.resolve(date + ".tsv"), StandardCharsets.UTF_8)) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            rows.add(parse(line));
+                        }
+                    }
+                    rows.sort(Comparator.comparing(TransactionDTO::getTransactionDate).thenComparing(TransactionDTO::getId));
+                    for (TransactionDTO row : rows) {
+                        handler.row(row);
+                    }
+                }
+            } finally {
+                try (Stream<Path> files = Files.list(spill)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+                Files.deleteIfExists(spill);
+            }
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Manifest current = manifest;
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("horizon", current.horizon());
+        statistics.put("segments", current.segments().size());
+        statistics.put("rows", current.segments().stream().mapToLong(Segment::rows).sum());
+        statistics.put("bytes", current.segments().stream().mapToLong(Segment::bytes).sum());
+        statistics.put("accountReads", accountReads.sum());
+        statistics.put("blocksInflated", blocksInflated.sum());
+        statistics.put("rowsRead", rowsRead.sum());
+        return statistics;
+    }
+
+    private void forEachAccountRow(long accountId, LocalDateTime from, LocalDateTime to, RowHandler handler) {
+        try {
+            scanAccount(accountId, from, to, handler);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read the transaction archive", ex);
+        }
+    }
+
+    // The account's rows in one segment, oldest first, inflating only the blocks that hold it
+    private void readAccount(Segment segment, long accountId, RowHandler handler) throws IOException {
+        List<Block> blocks = blockIndex(segment).stream()
+                .filter(block -> block.firstAccountId() <= accountId && block.lastAccountId() >= accountId)
+                .toList();
+        if (blocks.isEmpty()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve(segment.file()), StandardOpenOption.READ)) {
+            for (Block block : blocks) {
+                blocksInflated.increment();
+                channel.position(block.offset());
+                try (InputStream in = new GZIPInputStream(
+                        new BoundedInputStream(Channels.newInputStream(channel), block.length()))) {
+                    readRows(in, row -> {
+                        if (row.getAccountId() == accountId) {
+                            handler.row(row);
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    private void readSegment(Segment segment, RowHandler handler) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(directory.resolve(segment.file())), 64 * 1024)) {
+            readRows(in, handler);
+        }
+    }
+
+    // Binary search of a .ids file; null when the id is not in the segment
+    private static Long findAccountId(Path ids, long id) throws IOException {
+        try (FileChannel channel = FileChannel.open(ids, StandardOpenOption.READ)) {
+            ByteBuffer entry = ByteBuffer.allocate(ID_ENTRY_BYTES);
+            long low = 0;
+            long high = channel.size() / ID_ENTRY_BYTES - 1;
+            while (low <= high) {
+                long middle = (low + high) >>> 1;
+                entry.clear();
+                while (entry.hasRemaining()) {
+                    if (channel.read(entry, middle * ID_ENTRY_BYTES + entry.position()) < 0) {
+                        throw new EOFException("Truncated id index " + ids);
+                    }
+                }
+                long middleId = entry.getLong(0);
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    return entry.getLong(8);
+                }
+            }
+            return null;
+        }
+    }
+
+    private List<Segment> segmentsBetween(LocalDateTime from, LocalDateTime to) {
+        List<Segment> segments = new ArrayList<>();
+        for (Segment segment : manifest.segments()) {
+            LocalDateTime monthStart = segment.month().atDay(1).atStartOfDay();
+            LocalDateTime monthEnd = segment.month().plusMonths(1).atDay(1).atStartOfDay();
+            if ((to == null || monthStart.isBefore(to)) && (from == null || monthEnd.isAfter(from))) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private List<Block> blockIndex(Segment segment) {
+        return blockIndexes.computeIfAbsent(segment.month(), month -> {
+            try (BufferedReader reader = Files.newBufferedReader(directory.resolve(indexFile(segment.file())))) {
+                List<Block> blocks = new ArrayList<>();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t");
+                    blocks.add(new Block(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                            Long.parseLong(fields[2]), Integer.parseInt(fields[3])));
+                }
+                return Collections.unmodifiableList(blocks);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not read the block index of " + segment.file(), ex);
+            }
+        });
+    }
+
+    private void readRows(InputStream in, RowHandler handler) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            rowsRead.increment();
+            handler.row(parse(line));
+        }
+    }
+
+    private static boolean inRange(TransactionDTO row, LocalDateTime from, LocalDateTime to) {
+        return (from == null || !row.getTransactionDate().isBefore(from))
+                && (to == null || row.getTransactionDate().isBefore(to));
+    }
+
+    private static String indexFile(String segmentFile) {
+        return segmentFile.substring(0, segmentFile.indexOf('.')) + ".idx";
+    }
+
+    private static String idsFile(String segmentFile) {
+        return segmentFile.substring(0, segmentFile.indexOf('.')) + ".ids";
+    }
+
+    // id, account id, account number, type, amount, balance after, reference, date, description
+    private static void format(Writer writer, TransactionDTO row) throws IOException {
+        writer.append(String.valueOf(row.getId())).append('\t')
+                .append(String.valueOf(row.getAccountId())).append('\t')
+                .append(row.getAccountNumber()).append('\t')
+                .append(row.getTransactionType().name()).append('\t')
+                .append(row.getAmount().toPlainString()).append('\t')
+                .append(row.getBalanceAfterTransaction() != null ? row.getBalanceAfterTransaction().toPlainString() : NULL).append('\t')
+                .append(escape(row.getReferenceId())).append('\t')
+                .append(row.getTransactionDate().toString()).append('\t')
+                .append(escape(row.getDescription())).append('\n');
+    }
+
+    private static TransactionDTO parse(String line) {
+        String[] fields = line.split("\t", -1);
+        return TransactionDTO.builder()
+                .id(Long.parseLong(fields[0]))
+                .accountId(Long.parseLong(fields[1]))
+                .accountNumber(fields[2])
+                .transactionType(TransactionType.valueOf(fields[3]))
+                .amount(new BigDecimal(fields[4]))
+                .balanceAfterTransaction(NULL.equals(fields[5]) ? null : new BigDecimal(fields[5]))
+                .referenceId(unescape(fields[6]))
+                .transactionDate(LocalDateTime.parse(fields[7]))
+                .description(unescape(fields[8]))
+                .build();
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        if (NULL.equals(value)) {
+            return null;
+        }
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char escaped = value.charAt(++i);
+                result.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    // Writes to temporary files; finish() syncs them and moves them into place. The segment is
+    // not visible to readers until it is passed to commit().
+    public final class SegmentWriter implements AutoCloseable {
+
+        private final YearMonth month;
+        private final String fileName;
+        private final Path segmentTemp;
+        private final Path indexTemp;
+        private final Path idsTemp;
+        private final FileChannel segment;
+        private final Writer index;
+        private final DataOutputStream ids;
+        private final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream(256 * 1024);
+        private Writer block;
+        private int blockRowCount;
+        private long firstAccountId;
+        private long lastAccountId;
+        private long rows;
+        private long lastId = Long.MIN_VALUE;
+        private boolean finished;
+
+        private SegmentWriter(YearMonth month) throws IOException {
+            this.month = month;
+            this.fileName = "transactions-" + month + ".tsv.gz";
+            this.segmentTemp = directory.resolve(fileName + ".tmp");
+            this.indexTemp = directory.resolve(indexFile(fileName) + ".tmp");
+            this.segment = FileChannel.open(segmentTemp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.index = Files.newBufferedWriter(indexTemp, StandardCharsets.UTF_8);
+            this.idsTemp = directory.resolve(idsFile(fileName) + ".tmp");
+            this.ids = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(idsTemp), 64 * 1024));
+        }
+
+        public void append(TransactionDTO row) throws IOException {
+            if (block == null) {
+                blockBuffer.reset();
+                block = new OutputStreamWriter(new GZIPOutputStream(blockBuffer, 64 * 1024), StandardCharsets.UTF_8);
+                firstAccountId = row.getAccountId();
+            }
+            format(block, row);
+            lastAccountId = row.getAccountId();
+            rows++;
+            if (++blockRowCount == blockRows) {
+                flushBlock();
+            }
+        }
+
+        // The id index is written in a second pass over the month, in ascending id order
+        public void appendId(long id, long accountId) throws IOException {
+            if (id <= lastId) {
+                throw new IllegalStateException("Archive ids must be appended in ascending order");
+            }
+            ids.writeLong(id);
+            ids.writeLong(accountId);
+            lastId = id;
+        }
+
+        public Segment finish() throws IOException {
+            if (block != null) {
+                flushBlock();
+            }
+            segment.force(true);
+            long bytes = segment.size();
+            segment.close();
+            index.close();
+            ids.close();
+            Files.move(idsTemp, directory.resolve(idsFile(fileName)), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(indexTemp, directory.resolve(indexFile(fileName)), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(segmentTemp, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+            blockIndexes.remove(month);
+            finished = true;
+            return new Segment(month, fileName, rows, bytes, LocalDateTime.now());
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                segment.close();
+                index.close();
+                ids.close();
+                Files.deleteIfExists(segmentTemp);
+                Files.deleteIfExists(indexTemp);
+                Files.deleteIfExists(idsTemp);
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            block.close();
+            long offset = segment.position();
+            OutputStream out = Channels.newOutputStream(segment);
+            blockBuffer.writeTo(out);
+            index.append(String.valueOf(firstAccountId)).append('\t')
+                    .append(String.valueOf(lastAccountId)).append('\t')
+                    .append(String.valueOf(offset)).append('\t')
+                    .append(String.valueOf(blockBuffer.size())).append('\n');
+            block = null;
+            blockRowCount = 0;
+        }
+    }
+
+    // Stops a block's GZIPInputStream from reading into the next block; closing it leaves the
+    // segment's channel open for the next block
+    private static final class BoundedInputStream extends InputStream {
+
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,377 @@
+package io.pnc.bank.demo.cache;
+
+import io.pnc.bank.demo.model.Account;
+import io.pnc.bank.demo.model.AccountStatus;
+import io.pnc.bank.demo.model.AccountType;
+import io.pnc.bank.demo.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Id, status and type of every account keyed by its 10-digit number parsed into a long, so large
+// batches can be validated without an entity or a query per line. Slots are parallel primitive
+// arrays probed linearly (17 bytes per slot, at most 3/4 full). The table is loaded in the
+// background at startup, rebuilt every bank.account-index.refresh-interval to pick up changes
+// made outside this instance, and kept current by AccountServiceImpl in between.
+@Component
+@Slf4j
+public class AccountIndex {
+
+    public record Entry(long id, AccountStatus status, AccountType type) {
+    }
+
+    private static final String LOAD_SQL = "SELECT id, account_number, status, account_type FROM accounts";
+    private static final int CONFIRM_CHUNK_SIZE = 1000;
+    private static final AccountStatus[] STATUSES = AccountStatus.values();
+    private static final AccountType[] TYPES = AccountType.values();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final AccountRepository accountRepository;
+    private final boolean enabled;
+    private final Duration loadBudget;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private Table table = new Table(0);
+    // Changes committed while a reload is reading the accounts table, replayed onto its result
+    private List<Change> changesDuringReload;
+
+    private volatile boolean ready;
+    private volatile long lastLoadMillis;
+    private volatile LocalDateTime loadedAt;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+
+    public AccountIndex(DataSource dataSource,
+                        AccountRepository accountRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${bank.account-index.enabled:true}") boolean enabled,
+                        @Value("${bank.account-index.load-budget:10s}") Duration loadBudget,
+                        @Value("${bank.account-index.fetch-size:5000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        // PostgreSQL only honours the fetch size inside a transaction; in autocommit it buffers every row
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.accountRepository = accountRepository;
+        this.enabled = enabled;
+        this.loadBudget = loadBudget;
+    }
+
+    // Runs after the demo data initializer, off the startup path
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::reload, "account-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Scheduled(fixedDelayString = "${bank.account-index.refresh-interval:PT1H}",
+            initialDelayString = "${bank.account-index.refresh-interval:PT1H}")
+    public void reload() {
+        if (!enabled || !reloadLock.tryLock()) {
+            return;
+        }
+        try {
+            rebuild();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changesDuringReload = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long started = System.nanoTime();
+        Table loaded;
+        try {
+            loaded = readOnlyTransactionTemplate.execute(status -> {
+                Integer accounts = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM accounts", Integer.class);
+                Table rows = new Table(accounts != null ? accounts : 0);
+                jdbcTemplate.query(LOAD_SQL, (RowCallbackHandler) rs -> {
+                    long number = parse(rs.getString(2));
+                    if (number >= 0) {
+                        rows.put(number, rs.getLong(1),
+                                attributes(AccountStatus.valueOf(rs.getString(3)), AccountType.valueOf(rs.getString(4))));
+                    }
+                });
+                return rows;
+            });
+        } catch (DataAccessException ex) {
+            log.error("Account index reload failed, keeping the previous table: {}", ex.getMessage(), ex);
+            lock.writeLock().lock();
+            try {
+                changesDuringReload = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changesDuringReload.forEach(change -> loaded.put(change.number(), change.id(), change.attributes()));
+            changesDuringReload = null;
+            table = loaded;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        reloads.increment();
+        loadedAt = LocalDateTime.now();
+        lastLoadMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+        if (lastLoadMillis > loadBudget.toMillis()) {
+            log.warn("Account index loaded {} accounts in {} ms, over its {} budget ({} KB)",
+                    loaded.size, lastLoadMillis, loadBudget, loaded.footprintBytes() / 1024);
+        } else {
+            log.info("Account index loaded {} accounts in {} ms ({} KB)",
+                    loaded.size, lastLoadMillis, loaded.footprintBytes() / 1024);
+        }
+    }
+
+    // Until the first load completes every lookup misses
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Null for unknown or malformed account numbers
+    public Entry find(String accountNumber) {
+        lookups.increment();
+        long number = parse(accountNumber);
+        if (number < 0) {
+            misses.increment();
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int slot = table.slotOf(number);
+            if (slot < 0) {
+                misses.increment();
+                return null;
+            }
+            byte attributes = table.attributes[slot];
+            return new Entry(table.ids[slot], STATUSES[attributes & 0x0F], TYPES[attributes >> 4]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Looks up well-formed numbers the index does not know yet, in chunks, and adds those that
+    // exist; covers accounts created elsewhere since the last reload, or a table still loading
+    public void confirm(Collection<String> accountNumbers) {
+        List<String> chunk = new ArrayList<>(CONFIRM_CHUNK_SIZE);
+        for (String accountNumber : accountNumbers) {
+            if (parse(accountNumber) >= 0) {
+                chunk.add(accountNumber);
+            }
+            if (chunk.size() == CONFIRM_CHUNK_SIZE) {
+                confirmChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            confirmChunk(chunk);
+        }
+    }
+
+    // Call from the transaction that creates or changes the account; applied once it commits
+    public void accountChanged(Account account) {
+        long number = parse(account.getAccountNumber());
+        if (number < 0) {
+            return;
+        }
+        Change change = new Change(number, account.getId(), attributes(account.getStatus(), account.getAccountType()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            statistics.put("ready", ready);
+            statistics.put("accounts", table.size);
+            statistics.put("capacity", table.keys.length);
+            statistics.put("footprintBytes", table.footprintBytes());
+        } finally {
+            lock.readLock().unlock();
+        }
+        statistics.put("lastLoadMillis", lastLoadMillis);
+        statistics.put("loadBudgetMillis", loadBudget.toMillis());
+        statistics.put("loadedAt", loadedAt);
+        statistics.put("reloads", reloads.sum());
+        statistics.put("lookups", lookups.sum());
+        statistics.put("misses", misses.sum());
+        statistics.put("confirmed", confirmed.sum());
+        return statistics;
+    }
+
+    private void confirmChunk(List<String> accountNumbers) {
+        for (Object[] row : accountRepository.findLookupEntriesByAccountNumberIn(accountNumbers)) {
+            apply(new Change(parse((String) row[1]), (Long) row[0],
+                    attributes((AccountStatus) row[3], (AccountType) row[2])));
+            confirmed.increment();
+        }
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            table.put(change.number(), change.id(), change.attributes());
+            if (changesDuringReload != null) {
+                changesDuringReload.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // -1 unless the value is exactly 10 digits, as Account.accountNumber requires
+    static long parse(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() != 10) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = accountNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private static byte attributes(AccountStatus status, AccountType type) {
+        return (byte) (status.ordinal() | type.ordinal() << 4);
+    }
+
+    private record Change(long number, long id, byte attributes) {
+    }
+
+    // Open addressing with linear probing; account numbers are never negative, so -1 marks a free slot
+    private static final class Table {
+
+        private static final long FREE = -1L;
+
+        private long[] keys;
+        private long[] ids;
+        private byte[] attributes;
+        private int size;
+
+        Table(int expectedAccounts) {
+            allocate(capacityFor(expectedAccounts));
+        }
+
+        int slotOf(long number) {
+            int mask = keys.length - 1;
+            for (int slot = hash(number) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == number) {
+                    return slot;
+                }
+                if (keys[slot] == FREE) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(long number, long id, byte attributes) {
+            if ((size + 1) * 4L > keys.length * 3L) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = hash(number) & mask;
+            while (keys[slot] != FREE && keys[slot] != number) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == FREE) {
+                keys[slot] = number;
+                size++;
+            }
+            ids[slot] = id;
+            this.attributes[slot] = attributes;
+        }
+
+        long footprintBytes() {
+            return keys.length * (long) (Long.BYTES + Long.BYTES + Byte.BYTES);
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldIds = ids;
+            byte[] oldAttributes = attributes;
+            allocate(oldKeys.length * 2);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) {
+                    put(oldKeys[i], oldIds[i], oldAttributes[i]);
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+            ids = new long[capacity];
+            attributes = new byte[capacity];
+        }
+
+        private static int capacityFor(int expectedAccounts) {
+            int capacity = 16;
+            while (capacity * 3L < expectedAccounts * 4L) {
+                capacity <<= 1;
+            }
+            return capacity;
+        }
+
+        // Sequential account numbers would otherwise fill neighbouring slots in long runs
+        private static int hash(long number) {
+            long h = number * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
\ No newline at end of file
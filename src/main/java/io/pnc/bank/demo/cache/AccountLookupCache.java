@@ -0,0 +1,109 @@
+package io.pnc.bank.demo.cache;
+
+import io.pnc.bank.demo.model.AccountStatus;
+import io.pnc.bank.demo.model.AccountType;
+import io.pnc.bank.demo.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Account number -> id, type, status and bucket count, so postings can resolve the rows to lock
+// without a lookup query. Entries are dropped once a change to the account commits, and expire
+// after bank.account-cache.ttl to bound staleness from writers outside this instance. Balances
+// are never cached: they are always read from the locked row.
+@Component
+public class AccountLookupCache {
+
+    public record CachedAccount(Long id, String accountNumber, AccountType accountType,
+                                AccountStatus status, int balanceBuckets) {
+    }
+
+    private final AccountRepository accountRepository;
+    private final BoundedTtlCache<String, CachedAccount> entries;
+
+    // Bumped on every invalidation; a load that overlaps one does not store what it read
+    private final AtomicLong generation = new AtomicLong();
+
+    public AccountLookupCache(AccountRepository accountRepository,
+                              @Value("${bank.account-cache.max-entries:100000}") int maxEntries,
+                              @Value("${bank.account-cache.ttl:10m}") Duration ttl) {
+        this.accountRepository = accountRepository;
+        this.entries = new BoundedTtlCache<>(maxEntries, ttl);
+    }
+
+    public Optional<CachedAccount> find(String accountNumber) {
+        return Optional.ofNullable(findAll(List.of(accountNumber)).get(accountNumber));
+    }
+
+    // Unknown account numbers are absent from the result and are not cached
+    public Map<String, CachedAccount> findAll(Collection<String> accountNumbers) {
+        Map<String, CachedAccount> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String accountNumber : accountNumbers) {
+            CachedAccount cached = entries.get(accountNumber);
+            if (cached != null) {
+                result.put(accountNumber, cached);
+            } else {
+                missing.add(accountNumber);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long loadedAt = generation.get();
+        Map<String, CachedAccount> loaded = new HashMap<>();
+        for (Object[] row : accountRepository.findLookupEntriesByAccountNumberIn(missing)) {
+            loaded.put((String) row[1], new CachedAccount((Long) row[0], (String) row[1], (AccountType) row[2],
+                    (AccountStatus) row[3], (Integer) row[4]));
+        }
+        result.putAll(loaded);
+        // evict() bumps the generation before it removes, and its remove waits for this check and
+        // put to finish, so an invalidation that overlapped the load always wins
+        entries.putAllIf(loaded, () -> generation.get() == loadedAt);
+        return result;
+    }
+
+    public boolean exists(String accountNumber) {
+        return find(accountNumber).isPresent();
+    }
+
+    // Call from the transaction that changes the account; the entry goes once it commits
+    public void invalidate(String accountNumber) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(accountNumber);
+                }
+            });
+        } else {
+            evict(accountNumber);
+        }
+    }
+
+    // Drops the entry straight away, for callers that found it to be out of date
+    public void evict(String accountNumber) {
+        generation.incrementAndGet();
+        entries.remove(accountNumber);
+    }
+
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = entries.getStatistics();
+        long hits = statistics.get("hits");
+        long lookups = hits + statistics.get("misses");
+        statistics.put("hitRatioPercent", lookups == 0 ? 0 : hits * 100 / lookups);
+        return statistics;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package io.pnc.bank.demo.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+// Small in-process LRU map with a per-entry time to live. Entries past their TTL are dropped
+// when they are next looked up; once maxEntries is reached the least recently used entry goes.
+public class BoundedTtlCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public BoundedTtlCache(int maxEntries, Duration ttl) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        // Access order, so the eldest entry is always the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedTtlCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAtNanos() >= 0) {
+                entries.remove(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Checks the condition and stores the entries under the same lock, so a remove() that
+    // follows a failed check can never be overtaken by the put
+    public boolean putAllIf(Map<K, V> values, BooleanSupplier condition) {
+        lock.lock();
+        try {
+            if (!condition.getAsBoolean()) {
+                return false;
+            }
+            long expiresAtNanos = System.nanoTime() + ttlNanos;
+            values.forEach((key, value) -> entries.put(key, new Entry<>(value, expiresAtNanos)));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("size", (long) size());
+        statistics.put("hits", hits.sum());
+        statistics.put("misses", misses.sum());
+        statistics.put("evictions", evictions.sum());
+        statistics.put("expirations", expirations.sum());
+        return statistics;
+    }
+
+    private record Entry<V>(V value, long expiresAtNanos) {
+    }
+}
\ No newline at end of file
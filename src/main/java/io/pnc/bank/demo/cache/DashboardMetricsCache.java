@@ -0,0 +1,206 @@
+package io.pnc.bank.demo.cache;
+
+import io.pnc.bank.demo.model.AccountStatus;
+import io.pnc.bank.demo.model.Transaction;
+import io.pnc.bank.demo.model.TransactionType;
+import io.pnc.bank.demo.repository.AccountRepository;
+import io.pnc.bank.demo.service.DailyRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+// In-process dashboard figures: account counts by status and today's totals by transaction type.
+// Postings and account lifecycle changes are applied as deltas once their transaction commits;
+// a full reload from the database happens on a miss, when the day rolls over, or once the
+// snapshot is older than bank.dashboard.max-staleness, which bounds any drift between the two.
+@Component
+@Slf4j
+public class DashboardMetricsCache {
+
+    private final AccountRepository accountRepository;
+    private final DailyRollupService dailyRollupService;
+    private final Duration maxStaleness;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder deltasApplied = new LongAdder();
+
+    public DashboardMetricsCache(AccountRepository accountRepository,
+                                 DailyRollupService dailyRollupService,
+                                 @Value("${bank.dashboard.max-staleness:30s}") Duration maxStaleness) {
+        this.accountRepository = accountRepository;
+        this.dailyRollupService = dailyRollupService;
+        this.maxStaleness = maxStaleness;
+    }
+
+    // Same shape the index page used before: totalAccounts plus the daily summary keys
+    public Map<String, Object> getSummary() {
+        Snapshot current = currentSnapshot();
+
+        Map<String, BigDecimal> dailyTransactions = new HashMap<>();
+        current.totalsByType().forEach((type, amount) -> dailyTransactions.put(type.getSummaryKey(), amount));
+        dailyTransactions.put("activeAccountCount", BigDecimal.valueOf(current.count(AccountStatus.ACTIVE)));
+
+        Map<String, Long> accountsByStatus = new LinkedHashMap<>();
+        current.accountsByStatus().forEach((status, count) -> accountsByStatus.put(status.name(), count));
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalAccounts", current.totalAccounts());
+        summary.put("accountsByStatus", accountsByStatus);
+        summary.put("dailyTransactions", dailyTransactions);
+        summary.put("asOf", current.loadedAt());
+        return summary;
+    }
+
+    public void accountCreated(AccountStatus status) {
+        afterCommit(() -> apply(current -> current.withStatusChange(null, status)));
+    }
+
+    public void accountStatusChanged(AccountStatus oldStatus, AccountStatus newStatus) {
+        if (oldStatus != newStatus) {
+            afterCommit(() -> apply(current -> current.withStatusChange(oldStatus, newStatus)));
+        }
+    }
+
+    public void postingsRecorded(Collection<Transaction> transactions) {
+        Map<TransactionType, BigDecimal> amounts = new EnumMap<>(TransactionType.class);
+        LocalDate today = LocalDate.now();
+        for (Transaction transaction : transactions) {
+            if (transaction.getTransactionDate().toLocalDate().equals(today)) {
+                amounts.merge(transaction.getTransactionType(), transaction.getAmount(), BigDecimal::add);
+            }
+        }
+        if (!amounts.isEmpty()) {
+            afterCommit(() -> apply(current -> current.date().equals(today) ? current.withAmounts(amounts) : current));
+        }
+    }
+
+    public void invalidate() {
+        snapshot.set(null);
+    }
+
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("hits", hits.sum());
+        statistics.put("misses", misses.sum());
+        statistics.put("reloads", reloads.sum());
+        statistics.put("deltasApplied", deltasApplied.sum());
+        return statistics;
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot.get();
+        if (isFresh(current)) {
+            hits.increment();
+            return current;
+        }
+
+        misses.increment();
+        // Only one request reloads; the others wait and pick up its result
+        reloadLock.lock();
+        try {
+            current = snapshot.get();
+            if (!isFresh(current)) {
+                current = load();
+                snapshot.set(current);
+            }
+            return current;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private boolean isFresh(Snapshot current) {
+        return current != null
+                && current.date().equals(LocalDate.now())
+                && System.nanoTime() - current.loadedAtNanos() < maxStaleness.toNanos();
+    }
+
+    private Snapshot load() {
+        reloads.increment();
+        LocalDate today = LocalDate.now();
+
+        Map<AccountStatus, Long> accountsByStatus = new EnumMap<>(AccountStatus.class);
+        for (AccountStatus status : AccountStatus.values()) {
+            accountsByStatus.put(status, 0L);
+        }
+        for (Object[] row : accountRepository.countGroupedByStatus()) {
+            accountsByStatus.put((AccountStatus) row[0], (Long) row[1]);
+        }
+
+        Map<TransactionType, BigDecimal> totalsByType = new EnumMap<>(dailyRollupService.getTotalsByType(today, today));
+        log.debug("Dashboard metrics reloaded for {}", today);
+        return new Snapshot(today, accountsByStatus, totalsByType, System.nanoTime(), LocalDateTime.now());
+    }
+
+    private void apply(UnaryOperator<Snapshot> change) {
+        // Nothing cached yet means the next read loads from the database anyway
+        if (snapshot.updateAndGet(current -> current == null ? null : change.apply(current)) != null) {
+            deltasApplied.increment();
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Immutable; every delta produces a new copy so readers never see a half-applied change
+    private record Snapshot(LocalDate date,
+                            Map<AccountStatus, Long> accountsByStatus,
+                            Map<TransactionType, BigDecimal> totalsByType,
+                            long loadedAtNanos,
+                            LocalDateTime loadedAt) {
+
+        long count(AccountStatus status) {
+            return accountsByStatus.getOrDefault(status, 0L);
+        }
+
+        long totalAccounts() {
+            return accountsByStatus.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        Snapshot withStatusChange(AccountStatus oldStatus, AccountStatus newStatus) {
+            Map<AccountStatus, Long> counts = new EnumMap<>(accountsByStatus);
+            if (oldStatus != null) {
+                counts.merge(oldStatus, -1L, Long::sum);
+            }
+            counts.merge(newStatus, 1L, Long::sum);
+            return new Snapshot(date, counts, totalsByType, loadedAtNanos, loadedAt);
+        }
+
+        Snapshot withAmounts(Map<TransactionType, BigDecimal> amounts) {
+            Map<TransactionType, BigDecimal> totals = new EnumMap<>(totalsByType);
+            amounts.forEach((type, amount) -> totals.merge(type, amount, BigDecimal::add));
+            return new Snapshot(date, accountsByStatus, totals, loadedAtNanos, loadedAt);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package io.pnc.bank.demo.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Bounds how many requests run at once. With virtual threads Tomcat no longer caps concurrency,
+// so a burst of thousands of requests would all queue inside the connection pool and fail with
+// connection timeouts. Here they wait in a fair queue instead and get a 503 with Retry-After once
+// queueTimeout has passed, which keeps that wait shorter than Hikari's connection timeout.
+// A request that goes async (a StreamingResponseBody export, for one) keeps its permit until the
+// async work completes, since that is when it stops using a connection.
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long queueTimeoutNanos;
+
+    public ConcurrencyLimitFilter(int maxConcurrent, Duration queueTimeout) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            log.warn("Rejected {} {}: no capacity within {} ms", request.getMethod(), request.getRequestURI(),
+                    TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos));
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"success\":false,\"message\":\"Server is busy, please retry\"}");
+            return;
+        }
+
+        Permit permit = new Permit();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(permit);
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    // Released once, whichever of complete, error or timeout arrives first
+    private class Permit implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Re-dispatches do not pass through this filter, so the listener has to stay registered
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
\ No newline at end of file
@@ -1,34 +1,67 @@
 package io.pnc.bank.demo.config;
 
-import io.pnc.bank.demo.model.Account;
 import io.pnc.bank.demo.model.AccountStatus;
 import io.pnc.bank.demo.model.AccountType;
-import io.pnc.bank.demo.model.Transaction;
 import io.pnc.bank.demo.model.TransactionType;
 import io.pnc.bank.demo.repository.AccountRepository;
+import io.pnc.bank.demo.service.DailyRollupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.UUID;
-import java.util.concurrent.ThreadLocalRandom;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Generates demo and load-test data. Accounts are split into fixed-size chunks; each chunk derives
+// its own random generator from demo.data.seed and its index, so the data set is the same whatever
+// the number of workers or the order chunks finish in. Ids are assigned up front from the account
+// index, rows go in with JDBC batch inserts, and each chunk commits in its own transaction.
 @Component
-@Profile("demo")
+@Profile({"demo", "loadtest"})
 @RequiredArgsConstructor
 @Slf4j
 public class DemoDataInitializer implements CommandLineRunner {
 
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Michael", "Emily", "David", "Sarah", "Robert", "Linda", "William", "Patricia"};
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Miller", "Davis", "Garcia", "Wilson", "Taylor"};
+    private static final TransactionType[] COMMON_TYPES = {
+            TransactionType.DEPOSIT, TransactionType.WITHDRAWAL,
+            TransactionType.TRANSFER_IN, TransactionType.TRANSFER_OUT
+    };
+
+    // Must match allocationSize on the entities' @SequenceGenerator
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String INSERT_ACCOUNT = "INSERT INTO accounts (id, account_number, account_holder, account_type, " +
+            "balance, created_date, last_modified_date, status, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_TRANSACTION = "INSERT INTO transactions (id, account_id, transaction_type, amount, " +
+            "reference_id, description, transaction_date, balance_after_transaction) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final AccountRepository accountRepository;
+    private final DailyRollupService dailyRollupService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationContext applicationContext;
 
     @Value("${demo.data.initialize:true}")
     private boolean shouldInitialize;
@@ -39,11 +72,24 @@ public class DemoDataInitializer implements CommandLineRunner {
     @Value("${demo.transactions.per-account:5}")
     private int transactionsPerAccount;
 
-    private final Random random = new Random();
+    @Value("${demo.data.seed:42}")
+    private long seed;
+
+    @Value("${demo.data.workers:4}")
+    private int workers;
+
+    @Value("${demo.data.accounts-per-chunk:1000}")
+    private int accountsPerChunk;
+
+    @Value("${demo.data.batch-size:1000}")
+    private int batchSize;
+
+    // CLI mode: shut the application down once the data set has been written
+    @Value("${demo.data.exit-when-done:false}")
+    private boolean exitWhenDone;
 
     @Override
-    @Transactional
-    public void run(String... args) {
+    public void run(String... args) throws Exception {
         if (!shouldInitialize) {
             log.info("Demo data initialization is disabled");
             return;
@@ -56,71 +102,102 @@ public class DemoDataInitializer implements CommandLineRunner {
             return;
         }
 
-        log.info("Initializing demo data with {} accounts and approximately {} transactions per account", 
-                accountCount, transactionsPerAccount);
-
-        // Generate accounts
-        for (int i = 0; i < accountCount; i++) {
-            createAccount(i);
+        log.info("Initializing demo data with {} accounts and approximately {} transactions per account ({} workers, seed {})",
+                accountCount, transactionsPerAccount, workers, seed);
+
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        int chunkCount = (accountCount + accountsPerChunk - 1) / accountsPerChunk;
+        AtomicLong accountsWritten = new AtomicLong();
+        AtomicLong transactionsWritten = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> chunks = new ArrayList<>(chunkCount);
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                int chunkIndex = chunk;
+                chunks.add(executor.submit(() -> {
+                    int transactions = writeChunk(chunkIndex, now);
+                    long accounts = accountsWritten.addAndGet(Math.min(accountsPerChunk, accountCount - chunkIndex * accountsPerChunk));
+                    long total = transactionsWritten.addAndGet(transactions);
+                    if (chunkIndex % 100 == 0) {
+                        log.info("Generated {} accounts and {} transactions so far", accounts, total);
+                    }
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } finally {
+            executor.shutdownNow();
         }
 
-        log.info("Demo data initialization completed successfully");
+        // Rows were inserted with explicit ids, so move the pooled sequences past them
+        restartSequence("accounts");
+        restartSequence("transactions");
+
+        // Generated transactions bypass the posting path, so derive their rollups in one go,
+        // today included since nothing else is posting yet
+        dailyRollupService.rebuild(null, LocalDate.now());
+
+        long seconds = Math.max(1, (System.nanoTime() - started) / 1_000_000_000L);
+        log.info("Demo data initialization completed: {} accounts and {} transactions in {}s ({} transactions/s)",
+                accountsWritten.get(), transactionsWritten.get(), seconds, transactionsWritten.get() / seconds);
+
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
     }
 
-    private void createAccount(int index) {
-        // Generate account number
-        String accountNumber = String.format("%010d", 1000000000 + index);
+    private int writeChunk(int chunkIndex, LocalDateTime now) {
+        SplittableRandom random = new SplittableRandom(seed * 31 + chunkIndex);
+        int firstAccount = chunkIndex * accountsPerChunk;
+        int lastAccount = Math.min(firstAccount + accountsPerChunk, accountCount);
+
+        List<Object[]> accounts = new ArrayList<>(lastAccount - firstAccount);
+        List<Object[]> transactions = new ArrayList<>((lastAccount - firstAccount) * (transactionsPerAccount + 1));
+        for (int index = firstAccount; index < lastAccount; index++) {
+            generateAccount(index, random, now, accounts, transactions);
+        }
 
-        // Select random account type
-        AccountType accountType = getRandomAccountType();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            insert(INSERT_ACCOUNT, accounts);
+            insert(INSERT_TRANSACTION, transactions);
+        });
+        return transactions.size();
+    }
+
+    private void generateAccount(int index, SplittableRandom random, LocalDateTime now,
+                                 List<Object[]> accounts, List<Object[]> transactions) {
+        long accountId = index + 1L;
+        // Each account owns a fixed block of transaction ids, so workers never coordinate
+        long nextTransactionId = (long) index * (transactionsPerAccount + 1) + 1;
 
         // Generate a random initial balance between $1000 and $10000
-        BigDecimal initialBalance = BigDecimal.valueOf(1000 + random.nextInt(9000));
-
-        // Create account
-        Account account = Account.builder()
-                .accountNumber(accountNumber)
-                .accountHolder(getRandomCustomerName())
-                .accountType(accountType)
-                .balance(initialBalance)
-                .status(AccountStatus.ACTIVE)
-                .createdDate(getRandomDateInPast(90)) // Date within last 90 days
-                .lastModifiedDate(LocalDateTime.now())
-                .build();
-
-        // Save account
-        account = accountRepository.save(account);
-
-        // Create initial deposit transaction
-        Transaction initialDeposit = Transaction.builder()
-                .account(account)
-                .amount(initialBalance)
-                .transactionType(TransactionType.DEPOSIT)
-                .description("Initial deposit")
-                .transactionDate(account.getCreatedDate())
-                .referenceId(UUID.randomUUID().toString())
-                .balanceAfterTransaction(initialBalance)
-                .build();
-
-        account.addTransaction(initialDeposit);
-
-        // Create random transactions
-        BigDecimal currentBalance = initialBalance;
-        LocalDateTime lastTransactionDate = account.getCreatedDate();
+        BigDecimal initialBalance = BigDecimal.valueOf(1000 + random.nextInt(9000)).setScale(2);
+        LocalDateTime createdDate = now.minusDays(random.nextInt(90)).minusSeconds(random.nextInt(86_400));
+        AccountType accountType = AccountType.values()[random.nextInt(AccountType.values().length)];
+        String holder = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+
+        // Initial deposit transaction
+        transactions.add(transactionRow(nextTransactionId++, accountId, TransactionType.DEPOSIT, initialBalance,
+                randomUuid(random), "Initial deposit", createdDate, initialBalance));
 
+        BigDecimal currentBalance = initialBalance;
+        LocalDateTime lastTransactionDate = createdDate;
         for (int i = 0; i < transactionsPerAccount; i++) {
-            TransactionType type = getRandomTransactionType();
-            BigDecimal amount = BigDecimal.valueOf(10 + random.nextInt(990));  // $10 to $1000
-            String description = getTransactionDescription(type);
-            LocalDateTime transactionDate = getRandomDateBetween(lastTransactionDate, LocalDateTime.now());
+            TransactionType type = COMMON_TYPES[random.nextInt(COMMON_TYPES.length)];
+            BigDecimal amount = BigDecimal.valueOf(10 + random.nextInt(990)).setScale(2);  // $10 to $1000
+            String description = getTransactionDescription(type, random);
+            LocalDateTime transactionDate = getRandomDateBetween(lastTransactionDate, now, random);
 
             // Update balance based on transaction type
-            if (type == TransactionType.DEPOSIT || type == TransactionType.TRANSFER_IN || type == TransactionType.INTEREST) {
+            if (type.isCredit()) {
                 currentBalance = currentBalance.add(amount);
             } else {
                 // For withdrawals, ensure we don't go negative
                 if (currentBalance.compareTo(amount) < 0) {
-                    amount = currentBalance.multiply(BigDecimal.valueOf(0.8));  // Take 80% of available balance
+                    amount = currentBalance.multiply(BigDecimal.valueOf(0.8)).setScale(2, RoundingMode.DOWN);  // Take 80% of available balance
                 }
                 if (amount.compareTo(BigDecimal.ZERO) <= 0) {
                     continue; // Skip this transaction if amount is zero or negative
@@ -128,81 +205,68 @@ public class DemoDataInitializer implements CommandLineRunner {
                 currentBalance = currentBalance.subtract(amount);
             }
 
-            // Create transaction
-            Transaction transaction = Transaction.builder()
-                    .account(account)
-                    .amount(amount)
-                    .transactionType(type)
-                    .description(description)
-                    .transactionDate(transactionDate)
-                    .referenceId(UUID.randomUUID().toString())
-                    .balanceAfterTransaction(currentBalance)
-                    .build();
-
-            account.addTransaction(transaction);
+            transactions.add(transactionRow(nextTransactionId++, accountId, type, amount,
+                    randomUuid(random), description, transactionDate, currentBalance));
             lastTransactionDate = transactionDate;
         }
 
-        // Update account with final balance
-        account.setBalance(currentBalance);
-        accountRepository.save(account);
+        accounts.add(new Object[]{accountId, String.format("%010d", 1000000000L + index), holder, accountType.name(),
+                currentBalance, Timestamp.valueOf(createdDate), Timestamp.valueOf(now), AccountStatus.ACTIVE.name()});
+    }
+
+    private Object[] transactionRow(long id, long accountId, TransactionType type, BigDecimal amount, String referenceId,
+                                    String description, LocalDateTime transactionDate, BigDecimal balanceAfter) {
+        return new Object[]{id, accountId, type.name(), amount, referenceId, description,
+                Timestamp.valueOf(transactionDate), balanceAfter};
     }
 
-    private AccountType getRandomAccountType() {
-        return AccountType.values()[random.nextInt(AccountType.values().length)];
+    private void insert(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
     }
 
-    private TransactionType getRandomTransactionType() {
-        List<TransactionType> commonTypes = Arrays.asList(
-                TransactionType.DEPOSIT, TransactionType.WITHDRAWAL,
-                TransactionType.TRANSFER_IN, TransactionType.TRANSFER_OUT
-        );
-        return commonTypes.get(random.nextInt(commonTypes.size()));
+    private void restartSequence(String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        // The pooled optimizer hands out (value - ALLOCATION_SIZE, value], so the next id is maxId + 1
+        jdbcTemplate.execute("ALTER SEQUENCE " + table + "_seq RESTART WITH " + (maxId + ID_ALLOCATION_SIZE));
     }
 
-    private String getTransactionDescription(TransactionType type) {
+    private String getTransactionDescription(TransactionType type, SplittableRandom random) {
         switch (type) {
             case DEPOSIT:
-                return getRandomItem(new String[]{"Salary deposit", "Check deposit", "Cash deposit", "Direct deposit"});
+                return getRandomItem(new String[]{"Salary deposit", "Check deposit", "Cash deposit", "Direct deposit"}, random);
             case WITHDRAWAL:
-                return getRandomItem(new String[]{"ATM withdrawal", "Cash withdrawal", "Debit card purchase", "Bill payment"});
+                return getRandomItem(new String[]{"ATM withdrawal", "Cash withdrawal", "Debit card purchase", "Bill payment"}, random);
             case TRANSFER_IN:
-                return "Transfer from account " + getRandomAccountNumber();
+                return "Transfer from account " + getRandomAccountNumber(random);
             case TRANSFER_OUT:
-                return "Transfer to account " + getRandomAccountNumber();
+                return "Transfer to account " + getRandomAccountNumber(random);
             case FEE:
                 return "Monthly maintenance fee";
             case INTEREST:
                 return "Interest payment";
             case PAYMENT:
-                return getRandomItem(new String[]{"Utility payment", "Rent payment", "Credit card payment", "Subscription payment"});
+                return getRandomItem(new String[]{"Utility payment", "Rent payment", "Credit card payment", "Subscription payment"}, random);
             default:
                 return "Transaction";
         }
     }
 
-    private String getRandomAccountNumber() {
-        return String.format("%010d", 1000000000 + random.nextInt(100000));
-    }
-
-    private String getRandomCustomerName() {
-        String[] firstNames = {"John", "Jane", "Michael", "Emily", "David", "Sarah", "Robert", "Linda", "William", "Patricia"};
-        String[] lastNames = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Miller", "Davis", "Garcia", "Wilson", "Taylor"};
-        return firstNames[random.nextInt(firstNames.length)] + " " + lastNames[random.nextInt(lastNames.length)];
+    private String getRandomAccountNumber(SplittableRandom random) {
+        return String.format("%010d", 1000000000L + random.nextInt(Math.max(1, accountCount)));
     }
 
-    private <T> T getRandomItem(T[] items) {
+    private <T> T getRandomItem(T[] items, SplittableRandom random) {
         return items[random.nextInt(items.length)];
     }
 
-    private LocalDateTime getRandomDateInPast(int days) {
-        return LocalDateTime.now().minusDays(random.nextInt(days));
+    private String randomUuid(SplittableRandom random) {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
     }
 
-    private LocalDateTime getRandomDateBetween(LocalDateTime start, LocalDateTime end) {
-        long startEpochSecond = start.toEpochSecond(java.time.ZoneOffset.UTC);
-        long endEpochSecond = end.toEpochSecond(java.time.ZoneOffset.UTC);
-        long randomEpochSecond = ThreadLocalRandom.current().nextLong(startEpochSecond, endEpochSecond);
-        return LocalDateTime.ofEpochSecond(randomEpochSecond, 0, java.time.ZoneOffset.UTC);
+    private LocalDateTime getRandomDateBetween(LocalDateTime start, LocalDateTime end, SplittableRandom random) {
+        long seconds = ChronoUnit.SECONDS.between(start, end);
+        return seconds > 0 ? start.plusSeconds(random.nextLong(seconds + 1)) : start;
     }
-} 
\ No newline at end of file
+}
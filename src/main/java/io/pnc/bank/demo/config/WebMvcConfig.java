@@ -1,13 +1,25 @@
 package io.pnc.bank.demo.config;
 
+import io.pnc.bank.demo.monitoring.StatementBudgetInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 @Configuration
+@RequiredArgsConstructor
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    private final StatementBudgetInterceptor statementBudgetInterceptor;
+
     @Override
     public void addViewControllers(ViewControllerRegistry registry) {
         // Add simple view controllers for common pages
@@ -20,4 +32,21 @@ public class WebMvcConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/static/**")
                 .addResourceLocations("classpath:/static/");
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(statementBudgetInterceptor).addPathPatterns("/api/**", "/accounts/**", "/transactions/**", "/");
+    }
+
+    // Runs after Spring Security, so unauthenticated requests never take a permit
+    @Bean
+    @ConditionalOnProperty(name = "bank.web.concurrency-limit.enabled", havingValue = "true")
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            @Value("${bank.web.concurrency-limit.max-concurrent}") int maxConcurrent,
+            @Value("${bank.web.concurrency-limit.queue-timeout:2s}") Duration queueTimeout) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(maxConcurrent, queueTimeout));
+        registration.addUrlPatterns("/api/*", "/accounts/*", "/transactions/*");
+        return registration;
+    }
 } 
\ No newline at end of file
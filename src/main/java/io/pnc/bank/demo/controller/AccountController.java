@@ -1,18 +1,29 @@
 package io.pnc.bank.demo.controller;
 
+import io.pnc.bank.demo.cache.AccountIndex;
+import io.pnc.bank.demo.cache.DashboardMetricsCache;
 import io.pnc.bank.demo.dto.AccountDTO;
+import io.pnc.bank.demo.dto.AccountHolderMatchDTO;
+import io.pnc.bank.demo.dto.AccountSearchCriteria;
 import io.pnc.bank.demo.dto.ApiResponse;
 import io.pnc.bank.demo.dto.CreateAccountRequest;
+import io.pnc.bank.demo.dto.CursorPage;
 import io.pnc.bank.demo.dto.UpdateAccountRequest;
 import io.pnc.bank.demo.model.AccountStatus;
+import io.pnc.bank.demo.monitoring.StatementBudget;
 import io.pnc.bank.demo.service.AccountService;
+import io.pnc.bank.demo.service.ExportService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/accounts")
@@ -20,13 +31,42 @@ import java.util.List;
 public class AccountController {
 
     private final AccountService accountService;
+    private final DashboardMetricsCache dashboardMetricsCache;
+    private final AccountIndex accountIndex;
+    private final ExportService exportService;
 
+    // Filters: status, type, holder (prefix), minBalance, maxBalance; order: sort and direction.
+    // Keyset pagination: pass nextCursor from the previous response, with the same filters, to continue
+    @StatementBudget(3)
     @GetMapping
-    public ResponseEntity<ApiResponse<List<AccountDTO>>> getAllAccounts() {
-        List<AccountDTO> accounts = accountService.getAllAccounts();
+    public ResponseEntity<ApiResponse<CursorPage<AccountDTO>>> getAllAccounts(
+            AccountSearchCriteria criteria,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        CursorPage<AccountDTO> accounts = accountService.searchAccounts(criteria, cursor, size, includeTotal);
         return ResponseEntity.ok(ApiResponse.success(accounts));
     }
 
+    // Call-centre lookup by holder name: prefix by default, fuzzy=true tolerates typos and partial names
+    @StatementBudget(1)
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<List<AccountHolderMatchDTO>>> searchAccountHolders(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(accountService.searchAccountHolders(q, fuzzy, limit)));
+    }
+
+    // Every account as newline-delimited JSON, streamed from a database cursor for the warehouse feed
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAccounts(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = NdjsonResponses.acceptsGzip(acceptEncoding);
+        StreamingResponseBody exportBody = outputStream -> exportService.writeAccounts(outputStream, gzip);
+        return NdjsonResponses.attachment("accounts_" + LocalDate.now() + ".ndjson", gzip, exportBody);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<AccountDTO>> getAccountById(@PathVariable Long id) {
         AccountDTO account = accountService.getAccountById(id);
@@ -62,22 +102,62 @@ public class AccountController {
         return ResponseEntity.ok(ApiResponse.success("Account status updated successfully", updatedAccount));
     }
 
+    // Opt a hot account in or out of sharded balances
+    @PatchMapping("/{id}/balance-buckets")
+    public ResponseEntity<ApiResponse<AccountDTO>> updateBalanceBuckets(
+            @PathVariable Long id,
+            @RequestParam int buckets) {
+        AccountDTO updatedAccount = accountService.updateBalanceBuckets(id, buckets);
+        return ResponseEntity.ok(ApiResponse.success("Balance buckets updated successfully", updatedAccount));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<ApiResponse<Void>> deleteAccount(@PathVariable Long id) {
         accountService.deleteAccount(id);
         return ResponseEntity.ok(ApiResponse.success("Account deleted successfully", null));
     }
 
+    // Shorthands for GET /api/accounts?status= and ?holder=, paged the same way
     @GetMapping("/status/{status}")
-    public ResponseEntity<ApiResponse<List<AccountDTO>>> getAccountsByStatus(@PathVariable AccountStatus status) {
-        List<AccountDTO> accounts = accountService.getAccountsByStatus(status);
+    public ResponseEntity<ApiResponse<CursorPage<AccountDTO>>> getAccountsByStatus(
+            @PathVariable AccountStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPage<AccountDTO> accounts = accountService.searchAccounts(
+                AccountSearchCriteria.builder().status(status).build(), cursor, size, false);
         return ResponseEntity.ok(ApiResponse.success(accounts));
     }
 
+    @GetMapping("/holder-prefix/{prefix}")
+    public ResponseEntity<ApiResponse<CursorPage<AccountDTO>>> getAccountsByAccountHolderPrefix(
+            @PathVariable String prefix,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPage<AccountDTO> accounts = accountService.searchAccounts(
+                AccountSearchCriteria.builder().holder(prefix).build(), cursor, size, false);
+        return ResponseEntity.ok(ApiResponse.success(accounts));
+    }
+
+    // Exact holder name, every matching account
     @GetMapping("/holder/{accountHolder}")
     public ResponseEntity<ApiResponse<List<AccountDTO>>> getAccountsByAccountHolder(
             @PathVariable String accountHolder) {
         List<AccountDTO> accounts = accountService.getAccountsByAccountHolder(accountHolder);
         return ResponseEntity.ok(ApiResponse.success(accounts));
     }
+
+    @GetMapping("/summary")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getDashboardSummary() {
+        return ResponseEntity.ok(ApiResponse.success(dashboardMetricsCache.getSummary()));
+    }
+
+    @GetMapping("/summary/cache-statistics")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> getDashboardCacheStatistics() {
+        return ResponseEntity.ok(ApiResponse.success(dashboardMetricsCache.getStatistics()));
+    }
+
+    @GetMapping("/index/statistics")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getAccountIndexStatistics() {
+        return ResponseEntity.ok(ApiResponse.success(accountIndex.getStatistics()));
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,102 @@
+package io.pnc.bank.demo.controller;
+
+import io.pnc.bank.demo.archive.TransactionArchive;
+import io.pnc.bank.demo.cache.DashboardMetricsCache;
+import io.pnc.bank.demo.dto.ApiResponse;
+import io.pnc.bank.demo.dto.ArchiveRunDTO;
+import io.pnc.bank.demo.dto.SqlProfileDTO;
+import io.pnc.bank.demo.dto.StatementRunDTO;
+import io.pnc.bank.demo.monitoring.SqlProfiler;
+import io.pnc.bank.demo.service.BalanceCheckpointService;
+import io.pnc.bank.demo.service.DailyRollupService;
+import io.pnc.bank.demo.service.StatementBatchService;
+import io.pnc.bank.demo.service.TransactionArchiveService;
+import io.pnc.bank.demo.service.TransactionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final SqlProfiler sqlProfiler;
+    private final TransactionService transactionService;
+    private final DailyRollupService dailyRollupService;
+    private final DashboardMetricsCache dashboardMetricsCache;
+    private final BalanceCheckpointService balanceCheckpointService;
+    private final StatementBatchService statementBatchService;
+    private final TransactionArchiveService transactionArchiveService;
+    private final TransactionArchive transactionArchive;
+
+    // Handlers with the highest SQL cost since the last reset, plus Hibernate's slowest queries
+    @GetMapping("/sql-profile")
+    public ResponseEntity<ApiResponse<SqlProfileDTO>> getSqlProfile(
+            @RequestParam(defaultValue = "20") int top,
+            @RequestParam(defaultValue = "statements") String sort) {
+        return ResponseEntity.ok(ApiResponse.success(sqlProfiler.getProfile(top, sort)));
+    }
+
+    // Turns the diagnostic mode on or off without a restart
+    @PutMapping("/sql-profile")
+    public ResponseEntity<ApiResponse<SqlProfileDTO>> setSqlProfileEnabled(@RequestParam boolean enabled) {
+        sqlProfiler.setEnabled(enabled);
+        return ResponseEntity.ok(ApiResponse.success("SQL profiler " + (enabled ? "enabled" : "disabled"),
+                sqlProfiler.getProfile(20, "statements")));
+    }
+
+    @DeleteMapping("/sql-profile")
+    public ResponseEntity<ApiResponse<Void>> resetSqlProfile() {
+        sqlProfiler.reset();
+        return ResponseEntity.ok(ApiResponse.success("SQL profile reset", null));
+    }
+
+    @GetMapping("/engine/statistics")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> getPostingStatistics() {
+        return ResponseEntity.ok(ApiResponse.success(transactionService.getPostingStatistics()));
+    }
+
+    // Recomputes the daily rollups from the ledger; defaults to the whole history up to yesterday
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<ApiResponse<Long>> rebuildDailyRollups(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        long rows = dailyRollupService.rebuild(startDate, endDate);
+        dashboardMetricsCache.invalidate();
+        return ResponseEntity.ok(ApiResponse.success("Daily rollups rebuilt", rows));
+    }
+
+    // Checkpoints are written nightly for the previous day; this backfills a missed day
+    @PostMapping("/checkpoints")
+    public ResponseEntity<ApiResponse<Integer>> createBalanceCheckpoints(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        int accounts = balanceCheckpointService.createCheckpoints(date);
+        return ResponseEntity.ok(ApiResponse.success("Balance checkpoints written for " + date, accounts));
+    }
+
+    // Runs month-end statements now, e.g. to finish a run that failed part way; completed partitions are kept
+    @PostMapping("/statements/month-end")
+    public ResponseEntity<ApiResponse<StatementRunDTO>> generateMonthEndStatements(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        StatementRunDTO run = statementBatchService.generateMonthEndStatements(month);
+        return ResponseEntity.ok(ApiResponse.success("Statements generated for " + month, run));
+    }
+
+    // Archives expired months now instead of waiting for bank.archive.cron
+    @PostMapping("/archive")
+    public ResponseEntity<ApiResponse<ArchiveRunDTO>> archiveExpiredMonths() {
+        ArchiveRunDTO run = transactionArchiveService.archiveExpiredMonths();
+        return ResponseEntity.ok(ApiResponse.success("Archived " + run.getMonthsArchived().size() + " months", run));
+    }
+
+    @GetMapping("/archive/statistics")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getArchiveStatistics() {
+        return ResponseEntity.ok(ApiResponse.success(transactionArchive.getStatistics()));
+    }
+}
\ No newline at end of file
@@ -3,6 +3,7 @@ package io.pnc.bank.demo.controller;
 import io.pnc.bank.demo.dto.ApiResponse;
 import io.pnc.bank.demo.dto.BeneficiaryDTO;
 import io.pnc.bank.demo.dto.CreateBeneficiaryRequest;
+import io.pnc.bank.demo.monitoring.StatementBudget;
 import io.pnc.bank.demo.service.BeneficiaryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -22,6 +23,7 @@ public class BeneficiaryController {
         this.beneficiaryService = beneficiaryService;
     }
 
+    @StatementBudget(1)
         @GetMapping("/account/{accountId}")
     public ResponseEntity<List<BeneficiaryDTO>> getBeneficiariesByAccount(@PathVariable String accountId) {
                 List<BeneficiaryDTO> beneficiaries = beneficiaryService.getBeneficiariesByAccountId(Long.valueOf(accountId));
@@ -41,9 +43,10 @@ public class BeneficiaryController {
         
         beneficiaryService.deleteBeneficiary(beneficiaryId, accountId);
         
-                return ResponseEntity.ok(new ApiResponse(true, "Benificiary deleted successfully"));
+                return ResponseEntity.ok(ApiResponse.success("Beneficiary deleted successfully", null));
     }
 
+    @StatementBudget(1)
         @GetMapping("/{id}")
     public BeneficiaryDTO getBeneficiary(@PathVariable Long id) {
                 return beneficiaryService.getBeneficiary(id);
@@ -1,29 +1,23 @@
 package io.pnc.bank.demo.controller;
 
-import io.pnc.bank.demo.service.AccountService;
-import io.pnc.bank.demo.service.TransactionService;
+import io.pnc.bank.demo.cache.DashboardMetricsCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
-import java.time.LocalDate;
 import java.util.Map;
 
 @Controller
 @RequiredArgsConstructor
 public class HomeController {
 
-    private final AccountService accountService;
-    private final TransactionService transactionService;
+    private final DashboardMetricsCache dashboardMetricsCache;
 
     @GetMapping("/")
     public String home(Model model) {
-        // Get a summary for the dashboard
-        Map<String, Object> summary = Map.of(
-                "totalAccounts", accountService.getAllAccounts().size(),
-                "dailyTransactions", transactionService.getDailyTransactionSummary(LocalDate.now())
-        );
+        // Get a summary for the dashboard; served from memory unless the cached figures are stale
+        Map<String, Object> summary = dashboardMetricsCache.getSummary();
         
         model.addAttribute("summary", summary);
         return "index";
@@ -0,0 +1,42 @@
+package io.pnc.bank.demo.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// Headers shared by the NDJSON export endpoints. Compression is negotiated with Accept-Encoding
+// (e.g. curl --compressed); the body is then gzipped as it is written, not by the container.
+final class NdjsonResponses {
+
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private NdjsonResponses() {
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    static ResponseEntity<StreamingResponseBody> attachment(String filename, boolean gzip, StreamingResponseBody body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDispositionFormData("attachment", filename);
+        headers.setContentType(APPLICATION_NDJSON);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+}
\ No newline at end of file
@@ -1,6 +1,10 @@
 package io.pnc.bank.demo.controller;
 
 import io.pnc.bank.demo.dto.*;
+import io.pnc.bank.demo.monitoring.StatementBudget;
+import io.pnc.bank.demo.service.BalanceCheckpointService;
+import io.pnc.bank.demo.service.ExportService;
+import io.pnc.bank.demo.service.ReportingService;
 import io.pnc.bank.demo.service.TransactionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -11,8 +15,12 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.Map;
 
@@ -22,7 +30,19 @@ import java.util.Map;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final ReportingService reportingService;
+    private final BalanceCheckpointService balanceCheckpointService;
+    private final ExportService exportService;
 
+    // Retries carrying the same key get the original posting back instead of a duplicate
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    // "Prefer: respond-async" queues the posting for group commit and answers 202 with a ticket,
+    // when the pipeline is enabled
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String RESPOND_ASYNC = "respond-async";
+
+    @StatementBudget(2)
     @GetMapping("/account/{accountId}")
     public ResponseEntity<ApiResponse<Page<TransactionDTO>>> getTransactionsByAccountId(
             @PathVariable Long accountId,
@@ -31,6 +51,19 @@ public class TransactionController {
         return ResponseEntity.ok(ApiResponse.success(transactions));
     }
 
+    // Keyset pagination: pass nextCursor from the previous response to continue; the total is optional
+    @StatementBudget(2)
+    @GetMapping("/account/{accountId}/history")
+    public ResponseEntity<ApiResponse<CursorPage<TransactionDTO>>> getTransactionHistory(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        CursorPage<TransactionDTO> history = transactionService.getTransactionHistory(accountId, cursor, size, includeTotal);
+        return ResponseEntity.ok(ApiResponse.success(history));
+    }
+
+    @StatementBudget(3)
     @GetMapping("/account/number/{accountNumber}")
     public ResponseEntity<ApiResponse<Page<TransactionDTO>>> getTransactionsByAccountNumber(
             @PathVariable String accountNumber,
@@ -39,6 +72,7 @@ public class TransactionController {
         return ResponseEntity.ok(ApiResponse.success(transactions));
     }
 
+    @StatementBudget(1)
     @GetMapping("/{transactionId}")
     public ResponseEntity<ApiResponse<TransactionDTO>> getTransactionById(@PathVariable Long transactionId) {
         TransactionDTO transaction = transactionService.getTransactionById(transactionId);
@@ -46,23 +80,77 @@ public class TransactionController {
     }
 
     @PostMapping("/deposit")
-    public ResponseEntity<ApiResponse<TransactionDTO>> deposit(@Valid @RequestBody DepositRequest depositRequest) {
-        TransactionDTO transaction = transactionService.deposit(depositRequest);
+    public ResponseEntity<ApiResponse<?>> deposit(
+            @Valid @RequestBody DepositRequest depositRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
+        if (respondAsync(prefer)) {
+            return accepted(transactionService.submitPosting(PostingInstruction.builder()
+                    .operation(PostingInstruction.Operation.DEPOSIT)
+                    .accountNumber(depositRequest.getAccountNumber())
+                    .amount(depositRequest.getAmount())
+                    .description(depositRequest.getDescription())
+                    .build(), idempotencyKey));
+        }
+        TransactionDTO transaction = transactionService.deposit(depositRequest, idempotencyKey);
         return ResponseEntity.ok(ApiResponse.success("Deposit processed successfully", transaction));
     }
 
     @PostMapping("/withdraw")
-    public ResponseEntity<ApiResponse<TransactionDTO>> withdraw(@Valid @RequestBody WithdrawalRequest withdrawalRequest) {
-        TransactionDTO transaction = transactionService.withdraw(withdrawalRequest);
+    public ResponseEntity<ApiResponse<?>> withdraw(
+            @Valid @RequestBody WithdrawalRequest withdrawalRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
+        if (respondAsync(prefer)) {
+            return accepted(transactionService.submitPosting(PostingInstruction.builder()
+                    .operation(PostingInstruction.Operation.WITHDRAWAL)
+                    .accountNumber(withdrawalRequest.getAccountNumber())
+                    .amount(withdrawalRequest.getAmount())
+                    .description(withdrawalRequest.getDescription())
+                    .build(), idempotencyKey));
+        }
+        TransactionDTO transaction = transactionService.withdraw(withdrawalRequest, idempotencyKey);
         return ResponseEntity.ok(ApiResponse.success("Withdrawal processed successfully", transaction));
     }
 
     @PostMapping("/transfer")
-    public ResponseEntity<ApiResponse<TransactionDTO>> transfer(@Valid @RequestBody TransferRequest transferRequest) {
-        TransactionDTO transaction = transactionService.transfer(transferRequest);
+    public ResponseEntity<ApiResponse<?>> transfer(
+            @Valid @RequestBody TransferRequest transferRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
+        if (respondAsync(prefer)) {
+            return accepted(transactionService.submitPosting(PostingInstruction.builder()
+                    .operation(PostingInstruction.Operation.TRANSFER)
+                    .accountNumber(transferRequest.getFromAccountNumber())
+                    .toAccountNumber(transferRequest.getToAccountNumber())
+                    .amount(transferRequest.getAmount())
+                    .description(transferRequest.getDescription())
+                    .build(), idempotencyKey));
+        }
+        TransactionDTO transaction = transactionService.transfer(transferRequest, idempotencyKey);
         return ResponseEntity.ok(ApiResponse.success("Transfer processed successfully", transaction));
     }
 
+    @GetMapping("/postings/{ticketId}")
+    public ResponseEntity<ApiResponse<PostingTicketDTO>> getPostingTicket(@PathVariable String ticketId) {
+        return ResponseEntity.ok(ApiResponse.success(transactionService.getPostingTicket(ticketId)));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<BatchPostingResultDTO>> postBatch(@Valid @RequestBody BatchPostingRequest batchPostingRequest) {
+        BatchPostingResultDTO result = transactionService.postBatch(batchPostingRequest);
+        return ResponseEntity.ok(ApiResponse.success(
+                "Batch processed: " + result.getSucceeded() + " succeeded, " + result.getFailed() + " failed", result));
+    }
+
+    // Takes the same body as /batch, streamed from the request rather than bound to a list
+    @PostMapping(value = "/batch/validate", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ApiResponse<BatchPostingResultDTO>> validateBatch(InputStream body) throws IOException {
+        BatchPostingResultDTO result = transactionService.validateBatch(body);
+        return ResponseEntity.ok(ApiResponse.success(
+                "Batch validated: " + result.getSucceeded() + " valid, " + result.getFailed() + " invalid", result));
+    }
+
     @GetMapping("/summary/daily")
     public ResponseEntity<ApiResponse<Map<String, BigDecimal>>> getDailyTransactionSummary(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
@@ -71,13 +159,45 @@ public class TransactionController {
         return ResponseEntity.ok(ApiResponse.success(summary));
     }
 
+    // Balance at the end of the given day, rolled forward from the nearest balance checkpoint
+    @GetMapping("/account/{accountId}/balance")
+    public ResponseEntity<ApiResponse<BalanceAsOfDTO>> getBalanceAsOf(
+            @PathVariable Long accountId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(ApiResponse.success(balanceCheckpointService.getBalanceAsOf(accountId, date)));
+    }
+
+    @GetMapping("/account/{accountId}/statement")
+    public ResponseEntity<StreamingResponseBody> getAccountStatement(
+            @PathVariable Long accountId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before the start date");
+        }
+        // Resolved before streaming starts, so an unknown account is still a plain 404
+        BalanceAsOfDTO opening = balanceCheckpointService.getBalanceAsOf(accountId, startDate.minusDays(1));
+        StreamingResponseBody statementBody = outputStream ->
+                reportingService.writeAccountStatement(opening, endDate, outputStream);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDispositionFormData("attachment",
+                "statement_" + opening.getAccountNumber() + "_" + startDate + "_to_" + endDate + ".csv");
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(statementBody);
+    }
+
     @GetMapping("/report")
-    public ResponseEntity<byte[]> generateTransactionReport(
+    public ResponseEntity<StreamingResponseBody> generateTransactionReport(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(defaultValue = "csv") String format) {
         
-        byte[] reportData = transactionService.generateTransactionReport(startDate, endDate, format);
+        // Rows are written to the response as they are read from the database cursor
+        StreamingResponseBody reportBody = outputStream ->
+                reportingService.writeTransactionReport(startDate, endDate, format, outputStream);
         
         String filename = "transaction_report_" + startDate + "_to_" + endDate + "." + format.toLowerCase();
         
@@ -94,6 +214,48 @@ public class TransactionController {
         
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(reportData);
+                .body(reportBody);
+    }
+
+    // Transactions as newline-delimited JSON, streamed from a database cursor for the warehouse feed;
+    // without dates the whole ledger, archived months included
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Checked before streaming starts, so a bad range is still a plain 400
+        if ((startDate == null) != (endDate == null)) {
+            throw new IllegalArgumentException("startDate and endDate must be given together");
+        }
+        if (startDate != null && endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before the start date");
+        }
+        boolean gzip = NdjsonResponses.acceptsGzip(acceptEncoding);
+        StreamingResponseBody exportBody = outputStream ->
+                exportService.writeTransactions(startDate, endDate, outputStream, gzip);
+
+        String filename = startDate != null
+                ? "transactions_" + startDate + "_to_" + endDate + ".ndjson"
+                : "transactions_" + LocalDate.now() + ".ndjson";
+        return NdjsonResponses.attachment(filename, gzip, exportBody);
+    }
+
+    private boolean respondAsync(String prefer) {
+        return prefer != null && prefer.contains(RESPOND_ASYNC)
+                && transactionService.isAsyncPostingEnabled();
+    }
+
+    private ResponseEntity<ApiResponse<?>> accepted(PostingTicketDTO ticket) {
+        // A repeated Idempotency-Key whose posting already committed gets the outcome straight away
+        if (ticket.getStatus() != PostingTicketDTO.Status.PENDING) {
+            return ResponseEntity.ok()
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(ApiResponse.success("Posting completed", ticket));
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/transactions/postings/" + ticket.getTicketId()))
+                .header("Preference-Applied", RESPOND_ASYNC)
+                .body(ApiResponse.success("Posting accepted", ticket));
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
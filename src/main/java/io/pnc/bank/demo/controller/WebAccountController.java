@@ -1,18 +1,18 @@
 package io.pnc.bank.demo.controller;
 
 import io.pnc.bank.demo.dto.AccountDTO;
+import io.pnc.bank.demo.dto.AccountSearchCriteria;
 import io.pnc.bank.demo.dto.CreateAccountRequest;
+import io.pnc.bank.demo.dto.CursorPage;
 import io.pnc.bank.demo.dto.TransactionDTO;
 import io.pnc.bank.demo.dto.UpdateAccountRequest;
 import io.pnc.bank.demo.model.AccountStatus;
 import io.pnc.bank.demo.model.AccountType;
+import io.pnc.bank.demo.monitoring.StatementBudget;
 import io.pnc.bank.demo.service.AccountService;
 import io.pnc.bank.demo.service.TransactionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -27,28 +27,43 @@ public class WebAccountController {
     private final AccountService accountService;
     private final TransactionService transactionService;
 
+    @StatementBudget(2)
     @GetMapping
-    public String getAllAccounts(Model model) {
-        model.addAttribute("accounts", accountService.getAllAccounts());
+    public String getAllAccounts(
+            @ModelAttribute("criteria") AccountSearchCriteria criteria,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Model model) {
+        
+        // "Next" links carry nextCursor along with the current filters
+        CursorPage<AccountDTO> accounts = accountService.searchAccounts(criteria, cursor, size, false);
+        
+        model.addAttribute("accounts", accounts.getContent());
+        model.addAttribute("hasNext", accounts.isHasNext());
+        model.addAttribute("nextCursor", accounts.getNextCursor());
+        model.addAttribute("accountTypes", AccountType.values());
+        model.addAttribute("accountStatuses", AccountStatus.values());
+        
         return "accounts/list";
     }
 
+    @StatementBudget(2)
     @GetMapping("/{id}")
     public String getAccountDetails(
             @PathVariable Long id,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int size,
             Model model) {
         
         AccountDTO account = accountService.getAccountById(id);
         model.addAttribute("account", account);
         
-        Page<TransactionDTO> transactions = transactionService.getTransactionsByAccountId(
-                id, PageRequest.of(page, size, Sort.by("transactionDate").descending()));
+        // Newest first; "older" links carry nextCursor instead of a page number
+        CursorPage<TransactionDTO> transactions = transactionService.getTransactionHistory(id, cursor, size, false);
         
-        model.addAttribute("transactions", transactions);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", transactions.getTotalPages());
+        model.addAttribute("transactions", transactions.getContent());
+        model.addAttribute("hasNext", transactions.isHasNext());
+        model.addAttribute("nextCursor", transactions.getNextCursor());
         
         return "accounts/details";
     }
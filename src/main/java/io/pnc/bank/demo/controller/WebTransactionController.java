@@ -3,6 +3,7 @@ package io.pnc.bank.demo.controller;
 import io.pnc.bank.demo.dto.DepositRequest;
 import io.pnc.bank.demo.dto.TransferRequest;
 import io.pnc.bank.demo.dto.WithdrawalRequest;
+import io.pnc.bank.demo.service.ReportingService;
 import io.pnc.bank.demo.service.TransactionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -14,6 +15,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDate;
@@ -25,6 +27,7 @@ import java.util.Map;
 public class WebTransactionController {
 
     private final TransactionService transactionService;
+    private final ReportingService reportingService;
 
     @GetMapping("/deposit")
     public String showDepositForm(Model model) {
@@ -130,12 +133,14 @@ public class WebTransactionController {
     }
 
     @GetMapping("/download-report")
-    public ResponseEntity<byte[]> downloadReport(
+    public ResponseEntity<StreamingResponseBody> downloadReport(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(defaultValue = "csv") String format) {
         
-        byte[] reportData = transactionService.generateTransactionReport(startDate, endDate, format);
+        // Rows are written to the response as they are read from the database cursor
+        StreamingResponseBody reportBody = outputStream ->
+                reportingService.writeTransactionReport(startDate, endDate, format, outputStream);
         
         String filename = "transaction_report_" + startDate + "_to_" + endDate + "." + format.toLowerCase();
         
@@ -152,6 +157,6 @@ public class WebTransactionController {
         
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(reportData);
+                .body(reportBody);
     }
 } 
\ No newline at end of file
@@ -31,6 +31,7 @@ public class AccountDTO {
     private AccountType accountType;
     
     private BigDecimal balance;
+    private int balanceBuckets;
     private LocalDateTime createdDate;
     private LocalDateTime lastModifiedDate;
     private AccountStatus status;
@@ -0,0 +1,24 @@
+package io.pnc.bank.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.pnc.bank.demo.model.AccountStatus;
+import io.pnc.bank.demo.model.AccountType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AccountHolderMatchDTO {
+    private Long accountId;
+    private String accountNumber;
+    private String accountHolder;
+    private AccountType accountType;
+    private AccountStatus status;
+    // Trigram similarity between 0 and 1 for fuzzy matches; absent for prefix matches
+    private Double score;
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package io.pnc.bank.demo.dto;
+
+import io.pnc.bank.demo.model.AccountStatus;
+import io.pnc.bank.demo.model.AccountType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Filters and order of the account listing; every filter is optional
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountSearchCriteria {
+    private AccountStatus status;
+    private AccountType type;
+    // Matches holders whose name starts with this, case-sensitively
+    private String holder;
+    private BigDecimal minBalance;
+    private BigDecimal maxBalance;
+    // id, accountNumber, accountHolder, balance or createdDate
+    @Builder.Default
+    private String sort = "id";
+    // asc or desc
+    @Builder.Default
+    private String direction = "asc";
+}
\ No newline at end of file
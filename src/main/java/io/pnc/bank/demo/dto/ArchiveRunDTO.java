@@ -0,0 +1,25 @@
+package io.pnc.bank.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveRunDTO {
+    // Transactions dated before this day are served from the archive
+    private LocalDate horizon;
+    private List<YearMonth> monthsArchived;
+    private long rowsArchived;
+    // Rows deleted one by one; months whose partition was detached are not counted here
+    private long rowsDeleted;
+    private List<YearMonth> partitionsDetached;
+    private long durationMillis;
+}
\ No newline at end of file
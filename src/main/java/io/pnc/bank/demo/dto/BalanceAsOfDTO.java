@@ -0,0 +1,25 @@
+package io.pnc.bank.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BalanceAsOfDTO {
+    private Long accountId;
+    private String accountNumber;
+    // Balance at the end of this day
+    private LocalDate asOf;
+    private BigDecimal balance;
+    // The checkpoint the balance was rolled forward from; absent when it was worked back from the current balance
+    private LocalDate checkpointDate;
+}
\ No newline at end of file
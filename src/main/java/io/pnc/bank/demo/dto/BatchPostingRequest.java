@@ -0,0 +1,19 @@
+package io.pnc.bank.demo.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPostingRequest {
+
+    @NotEmpty(message = "At least one instruction is required")
+    private List<PostingInstruction> instructions;
+}
@@ -0,0 +1,19 @@
+package io.pnc.bank.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPostingResultDTO {
+    private int totalItems;
+    private int succeeded;
+    private int failed;
+    private List<PostingItemResultDTO> results;
+}
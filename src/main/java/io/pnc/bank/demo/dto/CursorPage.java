@@ -0,0 +1,24 @@
+package io.pnc.bank.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    // Pass back as ?cursor= to fetch the following page; null on the last page
+    private String nextCursor;
+    // Only filled in when the caller asks for it, since counting is the expensive part
+    private Long totalElements;
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package io.pnc.bank.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HandlerSqlProfileDTO {
+    // Controller class and method, e.g. AccountController.getAllAccounts
+    private String handler;
+    private long requests;
+    private long statements;
+    private int maxStatements;
+    private double statementsPerRequest;
+    private long jdbcMillis;
+    private double jdbcMillisPerRequest;
+    private long entitiesLoaded;
+    private long flushes;
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+package io.pnc.bank.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostingInstruction {
+
+    public enum Operation {
+        DEPOSIT,
+        WITHDRAWAL,
+        TRANSFER
+    }
+
+    // Instructions are validated one by one so a bad line fails on its own instead of rejecting the batch
+    private Operation operation;
+
+    // Source account for transfers
+    private String accountNumber;
+
+    private String toAccountNumber;
+
+    private BigDecimal amount;
+
+    private String description;
+}
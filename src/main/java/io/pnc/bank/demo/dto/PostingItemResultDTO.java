@@ -0,0 +1,31 @@
+package io.pnc.bank.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PostingItemResultDTO {
+    private int index;
+    private boolean success;
+    private Long transactionId;
+    private String referenceId;
+    private BigDecimal balanceAfterTransaction;
+    private String error;
+
+    public static PostingItemResultDTO failure(int index, String error) {
+        return PostingItemResultDTO.builder()
+                .index(index)
+                .success(false)
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,30 @@
+package io.pnc.bank.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PostingTicketDTO {
+
+    public enum Status {
+        PENDING,
+        COMPLETED,
+        FAILED
+    }
+
+    private String ticketId;
+    private Status status;
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+    // Filled in once the posting's group has committed or the posting was rejected
+    private PostingItemResultDTO result;
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package io.pnc.bank.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryProfileDTO {
+    private String query;
+    private long executions;
+    private long totalMillis;
+    private long maxMillis;
+    private long rows;
+    private long planCacheHits;
+    private long planCacheMisses;
+}
\ No newline at end of file
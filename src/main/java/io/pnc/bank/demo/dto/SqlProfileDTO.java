@@ -0,0 +1,25 @@
+package io.pnc.bank.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlProfileDTO {
+    private boolean enabled;
+    // Handler figures cover requests since this instant
+    private Instant since;
+    private String sortedBy;
+    private List<HandlerSqlProfileDTO> handlers;
+    // From Hibernate's statistics, which count since startup
+    private long queryPlanCacheHits;
+    private long queryPlanCacheMisses;
+    private List<QueryProfileDTO> queries;
+}
\ No newline at end of file
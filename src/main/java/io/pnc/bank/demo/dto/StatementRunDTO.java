@@ -0,0 +1,25 @@
+package io.pnc.bank.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementRunDTO {
+    private YearMonth month;
+    private String outputDirectory;
+    private int partitions;
+    // Completed by an earlier run of the same month and left as they were
+    private int partitionsSkipped;
+    // Not marked complete; running the month again retries only these
+    private int partitionsFailed;
+    private long statements;
+    private long lines;
+    private long durationMillis;
+}
\ No newline at end of file
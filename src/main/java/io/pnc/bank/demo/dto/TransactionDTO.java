@@ -37,5 +37,7 @@ public class TransactionDTO {
     
     private Long accountId;
     private String accountNumber;
+    // Not stored for credits to an account with balance buckets: null here and in the NDJSON export.
+    // The transaction report and the account statement compute it instead.
     private BigDecimal balanceAfterTransaction;
 } 
\ No newline at end of file
@@ -0,0 +1,24 @@
+package io.pnc.bank.demo.dto;
+
+import io.pnc.bank.demo.model.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Read-only projection streamed by the transaction report; never attached to a persistence context
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionReportRow {
+    private Long id;
+    private LocalDateTime transactionDate;
+    private String accountNumber;
+    private TransactionType transactionType;
+    private BigDecimal amount;
+    private BigDecimal balanceAfterTransaction;
+    private String referenceId;
+    private String description;
+}
@@ -0,0 +1,42 @@
+package io.pnc.bank.demo.dto;
+
+import io.pnc.bank.demo.model.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionTypeTotal {
+    private TransactionType transactionType;
+    private BigDecimal totalAmount;
+    private Long transactionCount;
+
+    // Every transaction type is present in the result, with zero when there was no activity
+    public static Map<TransactionType, BigDecimal> toAmountsByType(List<TransactionTypeTotal> totals) {
+        Map<TransactionType, BigDecimal> amounts = new EnumMap<>(TransactionType.class);
+        for (TransactionType type : TransactionType.values()) {
+            amounts.put(type, BigDecimal.ZERO);
+        }
+        for (TransactionTypeTotal total : totals) {
+            if (total.getTotalAmount() != null) {
+                amounts.put(total.getTransactionType(), total.getTotalAmount());
+            }
+        }
+        return amounts;
+    }
+
+    public static BigDecimal netMovement(Map<TransactionType, BigDecimal> amountsByType) {
+        BigDecimal net = BigDecimal.ZERO;
+        for (Map.Entry<TransactionType, BigDecimal> entry : amountsByType.entrySet()) {
+            net = entry.getKey().isCredit() ? net.add(entry.getValue()) : net.subtract(entry.getValue());
+        }
+        return net;
+    }
+}
@@ -3,6 +3,8 @@ package io.pnc.bank.demo.exception;
 import io.pnc.bank.demo.dto.ApiResponse;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
@@ -38,6 +40,14 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(ex.getMessage()));
     }
 
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public ResponseEntity<ApiResponse<Void>> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex, WebRequest request) {
+        log.error("Idempotency key reused: {}", ex.getMessage(), ex);
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+
     @ExceptionHandler(InsufficientBalanceException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<ApiResponse<Void>> handleInsufficientBalanceException(InsufficientBalanceException ex, WebRequest request) {
@@ -46,6 +56,23 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(ex.getMessage()));
     }
 
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<ApiResponse<Void>> handleConcurrencyFailureException(ConcurrencyFailureException ex, WebRequest request) {
+        log.error("Concurrent update conflict: {}", ex.getMessage(), ex);
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error("The account is being updated by another request, please retry"));
+    }
+
+    @ExceptionHandler(PostingQueueFullException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ApiResponse<Void>> handlePostingQueueFullException(PostingQueueFullException ex, WebRequest request) {
+        log.warn("Posting rejected: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<ApiResponse<Void>> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex, WebRequest request) {
@@ -74,25 +101,6 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(ex.getMessage()));
     }
 
-    // Handle Web view exceptions
-    @ExceptionHandler({
-            ResourceNotFoundException.class,
-            ResourceAlreadyExistsException.class,
-            InsufficientBalanceException.class
-    })
-    public ModelAndView handleWebViewExceptions(Exception ex, WebRequest request) {
-        if (isApiRequest(request)) {
-            throw ex; // Let API handlers handle it
-        }
-        
-        log.error("Exception for web view: {}", ex.getMessage(), ex);
-        
-        ModelAndView modelAndView = new ModelAndView("error/custom");
-        modelAndView.addObject("errorMessage", ex.getMessage());
-        modelAndView.addObject("stackTrace", ex.getStackTrace());
-        return modelAndView;
-    }
-
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ResponseEntity<ApiResponse<Void>> handleGenericException(Exception ex, WebRequest request) {
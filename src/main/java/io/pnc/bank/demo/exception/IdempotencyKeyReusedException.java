@@ -0,0 +1,12 @@
+package io.pnc.bank.demo.exception;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+    
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+    
+    public IdempotencyKeyReusedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,12 @@
+package io.pnc.bank.demo.exception;
+
+public class PostingQueueFullException extends RuntimeException {
+    
+    public PostingQueueFullException(String message) {
+        super(message);
+    }
+    
+    public PostingQueueFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+} 
\ No newline at end of file
@@ -22,15 +22,19 @@ public interface AccountMapper {
     @Mapping(target = "createdDate", ignore = true)
     @Mapping(target = "lastModifiedDate", ignore = true)
     @Mapping(target = "transactions", ignore = true)
+    @Mapping(target = "version", ignore = true)
     @Mapping(target = "balance", source = "initialDeposit", defaultExpression = "java(java.math.BigDecimal.ZERO)")
+    @Mapping(target = "balanceBuckets", ignore = true)
     @Mapping(target = "status", constant = "ACTIVE")
     Account toEntity(CreateAccountRequest createAccountRequest);
 
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "accountNumber", ignore = true)
     @Mapping(target = "balance", ignore = true)
+    @Mapping(target = "balanceBuckets", ignore = true)
     @Mapping(target = "createdDate", ignore = true)
     @Mapping(target = "lastModifiedDate", ignore = true)
     @Mapping(target = "transactions", ignore = true)
+    @Mapping(target = "version", ignore = true)
     void updateAccountFromDto(UpdateAccountRequest updateAccountRequest, @MappingTarget Account account);
 } 
\ No newline at end of file
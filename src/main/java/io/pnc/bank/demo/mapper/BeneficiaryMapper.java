@@ -33,7 +33,7 @@ public class BeneficiaryMapper {
         
         Beneficiary beneficiary = new Beneficiary();
         beneficiary.setName(request.getName());
-        beneficiary.setAccountNumber(request.getAccountNumber());
+        beneficiary.setAccountNumber(request.getAccount_number());
         beneficiary.setEmail(request.getEmail());
         beneficiary.setDescription(request.getDescription());
         beneficiary.setAccount(account);
@@ -23,8 +23,10 @@ import java.util.List;
 @AllArgsConstructor
 public class Account {
 
+    // Pooled sequence ids let Hibernate batch inserts, which IDENTITY columns prevent
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "accounts_seq")
+    @SequenceGenerator(name = "accounts_seq", sequenceName = "accounts_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Account number is required")
@@ -41,10 +43,16 @@ public class Account {
     @Column(name = "account_type", nullable = false)
     private AccountType accountType;
 
+    // For an account with balance buckets this is the consolidated part only; credits since the
+    // last consolidation sit in account_balance_buckets (see BalanceBucketLedger)
     @NotNull(message = "Balance cannot be null")
     @Column(name = "balance", nullable = false)
     private BigDecimal balance;
 
+    // 0 keeps the whole balance on this row; N > 0 spreads credits over N bucket rows
+    @Column(name = "balance_buckets", nullable = false)
+    private int balanceBuckets;
+
     @Column(name = "created_date", nullable = false)
     private LocalDateTime createdDate;
 
@@ -55,6 +63,11 @@ public class Account {
     @Enumerated(EnumType.STRING)
     private AccountStatus status;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Builder.Default
     @OneToMany(mappedBy = "account", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Transaction> transactions = new ArrayList<>();
 
@@ -0,0 +1,39 @@
+package io.pnc.bank.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+@Entity
+@Table(name = "account_balance_buckets")
+@IdClass(AccountBalanceBucket.BucketId.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountBalanceBucket {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "bucket")
+    private int bucket;
+
+    @Column(name = "amount", nullable = false)
+    private BigDecimal amount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BucketId implements Serializable {
+        private Long accountId;
+        private int bucket;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package io.pnc.bank.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// The account's total balance (including balance buckets) at the end of checkpointDate
+@Entity
+@Table(name = "account_balance_checkpoints")
+@IdClass(AccountBalanceCheckpoint.CheckpointId.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountBalanceCheckpoint {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "checkpoint_date")
+    private LocalDate checkpointDate;
+
+    @Column(name = "balance", nullable = false)
+    private BigDecimal balance;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CheckpointId implements Serializable {
+        private Long accountId;
+        private LocalDate checkpointDate;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package io.pnc.bank.demo.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_keys")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String key;
+
+    @Column(name = "operation", nullable = false)
+    private String operation;
+
+    @Column(name = "request_hash", nullable = false)
+    private String requestHash;
+
+    // Empty while an asynchronous posting is still queued
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    // The posting pipeline ticket, for keys recorded when the posting was queued
+    @Column(name = "ticket_id", length = 36)
+    private String ticketId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
\ No newline at end of file
@@ -20,8 +20,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Transaction {
 
+    // Pooled sequence ids let Hibernate batch inserts, which IDENTITY columns prevent
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "Transaction type is required")
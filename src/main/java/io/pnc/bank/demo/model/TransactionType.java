@@ -1,11 +1,33 @@
 package io.pnc.bank.demo.model;
 
 public enum TransactionType {
-    DEPOSIT,
-    WITHDRAWAL,
-    TRANSFER_IN,
-    TRANSFER_OUT,
-    FEE,
-    INTEREST,
-    PAYMENT
-} 
\ No newline at end of file
+    DEPOSIT(true, "Deposits"),
+    WITHDRAWAL(false, "Withdrawals"),
+    TRANSFER_IN(true, "Transfers In"),
+    TRANSFER_OUT(false, "Transfers Out"),
+    FEE(false, "Fees"),
+    INTEREST(true, "Interest"),
+    PAYMENT(false, "Payments");
+
+    private final boolean credit;
+    private final String displayName;
+
+    TransactionType(boolean credit, String displayName) {
+        this.credit = credit;
+        this.displayName = displayName;
+    }
+
+    // Credits increase the account balance, everything else reduces it
+    public boolean isCredit() {
+        return credit;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    // Key used in daily summaries, e.g. totalDeposits, totalTransfersIn
+    public String getSummaryKey() {
+        return "total" + displayName.replace(" ", "");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package io.pnc.bank.demo.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.pnc.bank.demo.model.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Business meters published through /actuator/prometheus next to the JVM, Hikari and Hibernate
+// ones. Tag values are kept to fixed sets (enum names, report kinds) so series stay bounded.
+@Component
+@RequiredArgsConstructor
+public class BankMetrics {
+
+    public static final String TRANSACTION_OPERATION = "bank.transaction";
+
+    public static final String INSUFFICIENT_BALANCE = "insufficient_balance";
+    public static final String ACCOUNT_NOT_ACTIVE = "account_not_active";
+
+    private final MeterRegistry meterRegistry;
+
+    public void postingRejected(String reason, TransactionType type) {
+        meterRegistry.counter("bank.posting.rejections", "reason", reason, "type", type.name()).increment();
+    }
+
+    public void reportWritten(String report, long durationNanos, long rows, long bytes, boolean completed) {
+        String outcome = completed ? "success" : "failure";
+        Timer.builder("bank.report")
+                .tag("report", report)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("bank.report.rows")
+                .tag("report", report)
+                .register(meterRegistry)
+                .record(rows);
+        DistributionSummary.builder("bank.report.size")
+                .tag("report", report)
+                .baseUnit("bytes")
+                .register(meterRegistry)
+                .record(bytes);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package io.pnc.bank.demo.monitoring;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.pnc.bank.demo.archive.TransactionArchive;
+import io.pnc.bank.demo.cache.AccountLookupCache;
+import io.pnc.bank.demo.service.IdempotencyService;
+import io.pnc.bank.demo.service.impl.AccountLockingEngine;
+import io.pnc.bank.demo.service.impl.PostingPipeline;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.function.Function;
+
+// Publishes the counters the caches, posting engine, pipeline and archive already keep for their
+// /statistics endpoints, so Prometheus can scrape them too. Nothing is counted twice: every meter
+// reads the component's own statistics when it is scraped. Running totals are FunctionCounters,
+// current levels are Gauges.
+@Component
+@RequiredArgsConstructor
+public class BankStatisticsMetrics implements MeterBinder {
+
+    private final AccountLookupCache accountLookupCache;
+    private final AccountLockingEngine lockingEngine;
+    private final IdempotencyService idempotencyService;
+    private final PostingPipeline postingPipeline;
+    private final TransactionArchive transactionArchive;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindCache(registry, "bank.account.cache", accountLookupCache, AccountLookupCache::getStatistics, "");
+
+        Meters<AccountLockingEngine> engine = new Meters<>(registry, lockingEngine, AccountLockingEngine::getStatistics);
+        engine.counter("bank.posting.engine.postings", "postings");
+        engine.counter("bank.posting.engine.retries", "retries");
+        engine.counter("bank.posting.engine.conflicts", "optimisticConflicts", "kind", "optimistic");
+        engine.counter("bank.posting.engine.conflicts", "lockFailures", "kind", "lock");
+        engine.counter("bank.posting.engine.retries.exhausted", "retriesExhausted");
+
+        Meters<IdempotencyService> idempotency = new Meters<>(registry, idempotencyService, IdempotencyService::getStatistics);
+        idempotency.counter("bank.idempotency.replays", "replays");
+        idempotency.counter("bank.idempotency.rejected", "rejected");
+        idempotency.counter("bank.idempotency.purged", "purged");
+        bindCache(registry, "bank.idempotency.cache", idempotencyService, IdempotencyService::getStatistics, "cache.");
+
+        Meters<PostingPipeline> pipeline = new Meters<>(registry, postingPipeline, PostingPipeline::getStatistics);
+        pipeline.gauge("bank.posting.pipeline.queued", "queued");
+        pipeline.counter("bank.posting.pipeline.submitted", "submitted");
+        pipeline.counter("bank.posting.pipeline.rejected", "rejected", "reason", "queue_full");
+        pipeline.counter("bank.posting.pipeline.rejected", "screenedOut", "reason", "screened_out");
+        pipeline.counter("bank.posting.pipeline.groups", "groupsCommitted", "outcome", "committed");
+        pipeline.counter("bank.posting.pipeline.groups", "groupsRetried", "outcome", "retried");
+        pipeline.counter("bank.posting.pipeline.postings.committed", "postingsCommitted");
+
+        Meters<TransactionArchive> archive = new Meters<>(registry, transactionArchive, TransactionArchive::getStatistics);
+        archive.gauge("bank.archive.segments", "segments");
+        archive.gauge("bank.archive.rows", "rows");
+        archive.gauge("bank.archive.bytes", "bytes");
+        archive.counter("bank.archive.account.reads", "accountReads");
+        archive.counter("bank.archive.blocks.inflated", "blocksInflated");
+        archive.counter("bank.archive.rows.read", "rowsRead");
+        // Everything older than the horizon is served from the archive; NaN until the first run
+        Gauge.builder("bank.archive.horizon", transactionArchive, BankStatisticsMetrics::horizonEpochSeconds)
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    private static <T> void bindCache(MeterRegistry registry, String name, T source,
+                                      Function<T, Map<String, ?>> statistics, String prefix) {
+        Meters<T> cache = new Meters<>(registry, source, statistics);
+        cache.gauge(name + ".size", prefix + "size");
+        cache.counter(name + ".requests", prefix + "hits", "result", "hit");
+        cache.counter(name + ".requests", prefix + "misses", "result", "miss");
+        cache.counter(name + ".removals", prefix + "evictions", "cause", "size");
+        cache.counter(name + ".removals", prefix + "expirations", "cause", "expired");
+    }
+
+    private static double horizonEpochSeconds(TransactionArchive archive) {
+        LocalDateTime horizon = archive.getHorizon();
+        return horizon != null ? horizon.atZone(ZoneId.systemDefault()).toEpochSecond() : Double.NaN;
+    }
+
+    private record Meters<T>(MeterRegistry registry, T source, Function<T, Map<String, ?>> statistics) {
+
+        void counter(String name, String key, String... tags) {
+            FunctionCounter.builder(name, source, value -> read(value, key))
+                    .tags(tags)
+                    .register(registry);
+        }
+
+        void gauge(String name, String key, String... tags) {
+            Gauge.builder(name, source, value -> read(value, key))
+                    .tags(tags)
+                    .register(registry);
+        }
+
+        private double read(T value, String key) {
+            return statistics.apply(value).get(key) instanceof Number number ? number.doubleValue() : Double.NaN;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,156 @@
+package io.pnc.bank.demo.monitoring;
+
+import io.pnc.bank.demo.dto.HandlerSqlProfileDTO;
+import io.pnc.bank.demo.dto.QueryProfileDTO;
+import io.pnc.bank.demo.dto.SqlProfileDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Diagnostic mode behind GET /api/admin/sql-profile: while enabled, the StatementCounter figures
+// of every request are added up per controller handler, so the handlers issuing the most
+// statements or spending the most time in JDBC can be found without logging each statement.
+// Handlers are a fixed set, so the map stays small. The query list comes from Hibernate's own
+// statistics (hibernate.generate_statistics) and is not affected by the switch or by reset().
+@Component
+public class SqlProfiler {
+
+    public static final List<String> SORT_KEYS = List.of("statements", "statementsPerRequest", "jdbcTime", "entitiesLoaded", "flushes");
+
+    private final Statistics statistics;
+    private final Map<String, HandlerProfile> handlers = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+    private volatile Instant since = Instant.now();
+
+    public SqlProfiler(EntityManagerFactory entityManagerFactory,
+                       @Value("${bank.sql.profiler.enabled:false}") boolean enabled) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void reset() {
+        handlers.clear();
+        since = Instant.now();
+    }
+
+    public void record(String handler, StatementCounter.Snapshot snapshot) {
+        if (!enabled) {
+            return;
+        }
+        handlers.computeIfAbsent(handler, name -> new HandlerProfile()).add(snapshot);
+    }
+
+    public SqlProfileDTO getProfile(int top, String sort) {
+        if (!SORT_KEYS.contains(sort)) {
+            throw new IllegalArgumentException("sort must be one of " + SORT_KEYS);
+        }
+        if (top < 1) {
+            throw new IllegalArgumentException("top must be positive");
+        }
+        List<HandlerSqlProfileDTO> handlerProfiles = new ArrayList<>(handlers.size());
+        handlers.forEach((handler, profile) -> handlerProfiles.add(profile.toDto(handler)));
+        handlerProfiles.sort(handlerComparator(sort).reversed());
+
+        return SqlProfileDTO.builder()
+                .enabled(enabled)
+                .since(since)
+                .sortedBy(sort)
+                .handlers(handlerProfiles.subList(0, Math.min(top, handlerProfiles.size())))
+                .queryPlanCacheHits(statistics.getQueryPlanCacheHitCount())
+                .queryPlanCacheMisses(statistics.getQueryPlanCacheMissCount())
+                .queries(topQueries(top))
+                .build();
+    }
+
+    private static Comparator<HandlerSqlProfileDTO> handlerComparator(String sort) {
+        switch (sort) {
+            case "statementsPerRequest":
+                return Comparator.comparingDouble(HandlerSqlProfileDTO::getStatementsPerRequest);
+            case "jdbcTime":
+                return Comparator.comparingLong(HandlerSqlProfileDTO::getJdbcMillis);
+            case "entitiesLoaded":
+                return Comparator.comparingLong(HandlerSqlProfileDTO::getEntitiesLoaded);
+            case "flushes":
+                return Comparator.comparingLong(HandlerSqlProfileDTO::getFlushes);
+            default:
+                return Comparator.comparingLong(HandlerSqlProfileDTO::getStatements);
+        }
+    }
+
+    // Slowest HQL/JPQL queries by total execution time; native queries are not tracked by Hibernate
+    private List<QueryProfileDTO> topQueries(int top) {
+        if (!statistics.isStatisticsEnabled()) {
+            return List.of();
+        }
+        List<QueryProfileDTO> queries = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            queries.add(QueryProfileDTO.builder()
+                    .query(query)
+                    .executions(queryStatistics.getExecutionCount())
+                    .totalMillis(queryStatistics.getExecutionTotalTime())
+                    .maxMillis(queryStatistics.getExecutionMaxTime())
+                    .rows(queryStatistics.getExecutionRowCount())
+                    .planCacheHits(queryStatistics.getPlanCacheHitCount())
+                    .planCacheMisses(queryStatistics.getPlanCacheMissCount())
+                    .build());
+        }
+        queries.sort(Comparator.comparingLong(QueryProfileDTO::getTotalMillis).reversed());
+        return queries.subList(0, Math.min(top, queries.size()));
+    }
+
+    private static final class HandlerProfile {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final AtomicInteger maxStatements = new AtomicInteger();
+        private final LongAdder jdbcNanos = new LongAdder();
+        private final LongAdder entitiesLoaded = new LongAdder();
+        private final LongAdder flushes = new LongAdder();
+
+        void add(StatementCounter.Snapshot snapshot) {
+            requests.increment();
+            statements.add(snapshot.statements());
+            maxStatements.accumulateAndGet(snapshot.statements(), Math::max);
+            jdbcNanos.add(snapshot.jdbcNanos());
+            entitiesLoaded.add(snapshot.entitiesLoaded());
+            flushes.add(snapshot.flushes());
+        }
+
+        HandlerSqlProfileDTO toDto(String handler) {
+            long count = Math.max(requests.sum(), 1);
+            long jdbcMillis = TimeUnit.NANOSECONDS.toMillis(jdbcNanos.sum());
+            return HandlerSqlProfileDTO.builder()
+                    .handler(handler)
+                    .requests(requests.sum())
+                    .statements(statements.sum())
+                    .maxStatements(maxStatements.get())
+                    .statementsPerRequest((double) statements.sum() / count)
+                    .jdbcMillis(jdbcMillis)
+                    .jdbcMillisPerRequest((double) jdbcNanos.sum() / count / 1_000_000)
+                    .entitiesLoaded(entitiesLoaded.sum())
+                    .flushes(flushes.sum())
+                    .build();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+package io.pnc.bank.demo.monitoring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Maximum number of SQL statements a handler is expected to issue per request
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+    int value();
+}
\ No newline at end of file
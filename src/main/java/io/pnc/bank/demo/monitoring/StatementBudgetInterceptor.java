@@ -0,0 +1,52 @@
+package io.pnc.bank.demo.monitoring;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Flags handlers that issue more statements than their @StatementBudget allows, which is how
+// N+1 lazy loading regressions show up, and hands every request's figures to the SqlProfiler.
+// Counts only cover work done on the request thread.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class StatementBudgetInterceptor implements HandlerInterceptor {
+
+    private final StatementCounter statementCounter;
+    private final SqlProfiler sqlProfiler;
+
+    @Value("${bank.sql.statement-budget.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        statementCounter.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return;
+        }
+        StatementCounter.Snapshot snapshot = statementCounter.snapshot();
+        sqlProfiler.record(handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName(), snapshot);
+        if (!enabled) {
+            return;
+        }
+        StatementBudget budget = handlerMethod.getMethodAnnotation(StatementBudget.class);
+        int statements = snapshot.statements();
+        if (budget != null && statements > budget.value()) {
+            log.warn("{} {} issued {} SQL statements, budget is {} ({}.{})",
+                    request.getMethod(), request.getRequestURI(), statements, budget.value(),
+                    handlerMethod.getBeanType().getSimpleName(), handlerMethod.getMethod().getName());
+        } else {
+            log.debug("{} {} issued {} SQL statements", request.getMethod(), request.getRequestURI(), statements);
+        }
+    }
+}
\ No newline at end of file
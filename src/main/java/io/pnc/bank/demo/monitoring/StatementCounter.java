@@ -0,0 +1,91 @@
+package io.pnc.bank.demo.monitoring;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.Interceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Counts the SQL statements Hibernate prepares on the current thread, together with the time
+// spent executing them, the entities loaded and the flushes. Registered as the session factory's
+// StatementInspector and Interceptor, with a SessionListener attached to every session;
+// StatementBudgetInterceptor resets and reads it per request. JdbcTemplate queries bypass
+// Hibernate and are not counted.
+@Component
+public class StatementCounter implements StatementInspector, Interceptor, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<Counts> COUNTS = ThreadLocal.withInitial(Counts::new);
+
+    public record Snapshot(int statements, long jdbcNanos, int entitiesLoaded, int flushes) {
+    }
+
+    @Override
+    public String inspect(String sql) {
+        COUNTS.get().statements++;
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        COUNTS.get().entitiesLoaded++;
+        return false;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+        hibernateProperties.put(AvailableSettings.INTERCEPTOR, this);
+        hibernateProperties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, SessionListener.class.getName());
+    }
+
+    public void reset() {
+        COUNTS.set(new Counts());
+    }
+
+    public Snapshot snapshot() {
+        Counts counts = COUNTS.get();
+        return new Snapshot(counts.statements, counts.jdbcNanos, counts.entitiesLoaded, counts.flushes);
+    }
+
+    private static final class Counts {
+        private int statements;
+        private long jdbcNanos;
+        private int entitiesLoaded;
+        private int flushes;
+    }
+
+    // Hibernate creates one per session; a session is used by one thread at a time
+    public static class SessionListener extends BaseSessionEventListener {
+
+        private long executeStart;
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            executeStart = System.nanoTime();
+        }
+
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            COUNTS.get().jdbcNanos += System.nanoTime() - executeStart;
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            executeStart = System.nanoTime();
+        }
+
+        @Override
+        public void jdbcExecuteBatchEnd() {
+            COUNTS.get().jdbcNanos += System.nanoTime() - executeStart;
+        }
+
+        @Override
+        public void flushEnd(int numberOfEntities, int numberOfCollections) {
+            COUNTS.get().flushes++;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+package io.pnc.bank.demo.repository;
+
+import io.pnc.bank.demo.model.AccountBalanceBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AccountBalanceBucketRepository extends JpaRepository<AccountBalanceBucket, AccountBalanceBucket.BucketId> {
+
+    // Native so the amount is bound as a plain DECIMAL; returns 0 when the bucket does not exist
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE account_balance_buckets SET amount = amount + :amount " +
+            "WHERE account_id = :accountId AND bucket = :bucket")
+    int addToBucket(@Param("accountId") Long accountId, @Param("bucket") int bucket, @Param("amount") BigDecimal amount);
+
+    // Locks every bucket of the account in bucket order, waiting for in-flight credits to commit
+    @Query(nativeQuery = true, value = "SELECT amount FROM account_balance_buckets " +
+            "WHERE account_id = :accountId ORDER BY bucket FOR UPDATE")
+    List<BigDecimal> lockAmountsByAccountId(@Param("accountId") Long accountId);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE account_balance_buckets SET amount = 0 " +
+            "WHERE account_id = :accountId AND amount <> 0")
+    int clearByAccountId(@Param("accountId") Long accountId);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO account_balance_buckets (account_id, bucket, amount) " +
+            "VALUES (:accountId, :bucket, 0)")
+    int insertEmptyBucket(@Param("accountId") Long accountId, @Param("bucket") int bucket);
+
+    @Modifying
+    @Query("DELETE FROM AccountBalanceBucket b WHERE b.accountId = ?1")
+    int deleteByAccountId(Long accountId);
+
+    // Consolidated balance plus bucket credits, read in one statement so a concurrent
+    // consolidation cannot be seen half applied
+    @Query(nativeQuery = true, value = "SELECT a.id, a.balance + COALESCE(SUM(b.amount), 0) " +
+            "FROM accounts a LEFT JOIN account_balance_buckets b ON b.account_id = a.id " +
+            "WHERE a.id IN (:accountIds) GROUP BY a.id, a.balance")
+    List<Object[]> findTotalBalancesByAccountIdIn(@Param("accountIds") Collection<Long> accountIds);
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package io.pnc.bank.demo.repository;
+
+import io.pnc.bank.demo.model.AccountBalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AccountBalanceCheckpointRepository
+        extends JpaRepository<AccountBalanceCheckpoint, AccountBalanceCheckpoint.CheckpointId> {
+
+    // Current total balance minus every movement dated on or after :before, i.e. the balance at
+    // that instant. One statement, so balances and transactions come from the same snapshot.
+    String BALANCE_BEFORE = "a.balance " +
+            "+ COALESCE((SELECT SUM(b.amount) FROM account_balance_buckets b WHERE b.account_id = a.id), 0) " +
+            "- COALESCE((SELECT SUM(CASE WHEN t.transaction_type IN (:creditTypes) THEN t.amount ELSE -t.amount END) " +
+            "FROM transactions t WHERE t.account_id = a.id AND t.transaction_date >= :before), 0)";
+
+    // Checkpoints accounts with ids in (afterId, upToId] that existed at :before and have none for :date yet
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO account_balance_checkpoints (account_id, checkpoint_date, balance, created_at) " +
+            "SELECT a.id, :date, " + BALANCE_BEFORE + ", CURRENT_TIMESTAMP FROM accounts a " +
+            "WHERE a.id > :afterId AND a.id <= :upToId AND a.created_date < :before " +
+            "AND NOT EXISTS (SELECT 1 FROM account_balance_checkpoints c " +
+            "WHERE c.account_id = a.id AND c.checkpoint_date = :date)")
+    int insertCheckpoints(@Param("date") LocalDate date, @Param("before") LocalDateTime before,
+                          @Param("afterId") long afterId, @Param("upToId") long upToId,
+                          @Param("creditTypes") Collection<String> creditTypes);
+
+    @Query(nativeQuery = true, value = "SELECT " + BALANCE_BEFORE + " FROM accounts a WHERE a.id = :accountId")
+    BigDecimal computeBalanceBefore(@Param("accountId") Long accountId, @Param("before") LocalDateTime before,
+                                    @Param("creditTypes") Collection<String> creditTypes);
+
+    Optional<AccountBalanceCheckpoint> findFirstByAccountIdAndCheckpointDateLessThanEqualOrderByCheckpointDateDesc(
+            Long accountId, LocalDate date);
+
+    @Query("SELECT c FROM AccountBalanceCheckpoint c WHERE c.checkpointDate = ?1 AND c.accountId > ?2 AND c.accountId <= ?3")
+    List<AccountBalanceCheckpoint> findByCheckpointDateAndAccountIdRange(LocalDate date, Long afterId, Long upToId);
+
+    @Query("SELECT MAX(a.id) FROM Account a")
+    Long findMaxAccountId();
+
+    @Query("SELECT MIN(c.checkpointDate) FROM AccountBalanceCheckpoint c")
+    LocalDate findEarliestCheckpointDate();
+
+    @Modifying
+    @Query("DELETE FROM AccountBalanceCheckpoint c WHERE c.checkpointDate < ?1 AND c.checkpointDate NOT IN ?2")
+    int deleteByCheckpointDateBeforeAndCheckpointDateNotIn(LocalDate date, Collection<LocalDate> keep);
+}
\ No newline at end of file
@@ -1,21 +1,84 @@
 package io.pnc.bank.demo.repository;
 
+import io.pnc.bank.demo.dto.AccountDTO;
 import io.pnc.bank.demo.model.Account;
 import io.pnc.bank.demo.model.AccountStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+// Listings go through JpaSpecificationExecutor with AccountSpecifications and a row limit
 @Repository
-public interface AccountRepository extends JpaRepository<Account, Long> {
+public interface AccountRepository extends JpaRepository<Account, Long>, JpaSpecificationExecutor<Account> {
     
     Optional<Account> findByAccountNumber(String accountNumber);
     
     boolean existsByAccountNumber(String accountNumber);
     
-    List<Account> findByStatus(AccountStatus status);
+    long countByStatus(AccountStatus status);
+    
+    // Rows of [AccountStatus, Long]
+    @Query("SELECT a.status, COUNT(a) FROM Account a GROUP BY a.status")
+    List<Object[]> countGroupedByStatus();
     
     List<Account> findByAccountHolder(String accountHolder);
+    
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
+    
+    // id, account number, type, status and bucket count: what AccountLookupCache keeps per account
+    @Query("SELECT a.id, a.accountNumber, a.accountType, a.status, a.balanceBuckets FROM Account a WHERE a.accountNumber IN ?1")
+    List<Object[]> findLookupEntriesByAccountNumberIn(Collection<String> accountNumbers);
+    
+    // Id and number of the accounts with ids in (afterId, upToId] that existed before the given time
+    @Query("SELECT a.id, a.accountNumber FROM Account a WHERE a.id > ?1 AND a.id <= ?2 AND a.createdDate < ?3 ORDER BY a.id")
+    List<Object[]> findStatementAccountsByIdRange(Long afterId, Long upToId, LocalDateTime createdBefore);
+    
+    // Holder search rows of [id, account_number, account_holder, account_type, status] whose lower-cased
+    // holder starts with the (LIKE-escaped) prefix; on PostgreSQL a range scan of the V12 prefix index
+    @Query(nativeQuery = true, value = "SELECT a.id, a.account_number, a.account_holder, a.account_type, a.status " +
+            "FROM accounts a WHERE lower(a.account_holder) LIKE lower(:prefix) || '%' ESCAPE '\\' " +
+            "ORDER BY lower(a.account_holder), a.id LIMIT :limit")
+    List<Object[]> findHolderMatchesByPrefix(@Param("prefix") String prefix, @Param("limit") int limit);
+    
+    // PostgreSQL with pg_trgm only: the closest holders by similarity (score in the sixth column),
+    // read as a nearest-neighbour scan of the trigram index from V11
+    @Query(nativeQuery = true, value = "SELECT a.id, a.account_number, a.account_holder, a.account_type, a.status, " +
+            "similarity(:query, a.account_holder) FROM accounts a WHERE :query % a.account_holder " +
+            "ORDER BY :query <-> a.account_holder, a.id LIMIT :limit")
+    List<Object[]> findHolderMatchesBySimilarity(@Param("query") String query, @Param("limit") int limit);
+    
+    // Every account as [id, account_number, account_holder, account_type, status]; consume inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT a.id, a.accountNumber, a.accountHolder, a.accountType, a.status FROM Account a")
+    Stream<Object[]> streamHolders();
+    
+    // Every account for the NDJSON export, in table order. Sharded balances include their bucket
+    // credits, read in the same statement as GET /api/accounts/{id} does; consume inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new io.pnc.bank.demo.dto.AccountDTO(a.id, a.accountNumber, a.accountHolder, a.accountType, " +
+            "CASE WHEN a.balanceBuckets > 0 THEN a.balance + COALESCE((SELECT SUM(b.amount) FROM AccountBalanceBucket b " +
+            "WHERE b.accountId = a.id), 0) ELSE a.balance END, " +
+            "a.balanceBuckets, a.createdDate, a.lastModifiedDate, a.status) FROM Account a")
+    Stream<AccountDTO> streamExportRows();
+    
+    @Query("SELECT a.accountNumber FROM Account a WHERE a.balanceBuckets > 0 ORDER BY a.id")
+    List<String> findAccountNumbersWithBalanceBuckets();
+    
+    // Rows are locked in id order so concurrent postings always acquire locks in the same sequence
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN ?1 ORDER BY a.id")
+    List<Account> findAllByIdInOrderByIdForUpdate(Collection<Long> ids);
 } 
\ No newline at end of file
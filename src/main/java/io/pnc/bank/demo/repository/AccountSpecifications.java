@@ -0,0 +1,57 @@
+package io.pnc.bank.demo.repository;
+
+import io.pnc.bank.demo.model.Account;
+import io.pnc.bank.demo.model.AccountStatus;
+import io.pnc.bank.demo.model.AccountType;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+
+// Building blocks for the filtered account listing. A null argument means "no filter", so the
+// service can combine all of them with Specification.allOf regardless of which were given.
+public final class AccountSpecifications {
+
+    private AccountSpecifications() {
+    }
+
+    public static Specification<Account> hasStatus(AccountStatus status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Account> hasType(AccountType type) {
+        return type == null ? null : (root, query, cb) -> cb.equal(root.get("accountType"), type);
+    }
+
+    // A prefix match can use the (account_holder, id) index; % and _ in the input are taken literally
+    public static Specification<Account> holderStartsWith(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return null;
+        }
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(root.get("accountHolder"), pattern, '\\');
+    }
+
+    public static Specification<Account> balanceAtLeast(BigDecimal minBalance) {
+        return minBalance == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("balance"), minBalance);
+    }
+
+    public static Specification<Account> balanceAtMost(BigDecimal maxBalance) {
+        return maxBalance == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("balance"), maxBalance);
+    }
+
+    // Rows after (value, id) in the listing order; id breaks ties so every row has one position
+    public static <Y extends Comparable<? super Y>> Specification<Account> after(String attribute, Y value, Long id,
+                                                                               boolean descending) {
+        return (root, query, cb) -> {
+            Path<Long> idPath = root.get("id");
+            if ("id".equals(attribute)) {
+                return descending ? cb.lessThan(idPath, id) : cb.greaterThan(idPath, id);
+            }
+            Path<Y> path = root.get(attribute);
+            return cb.or(
+                    descending ? cb.lessThan(path, value) : cb.greaterThan(path, value),
+                    cb.and(cb.equal(path, value), descending ? cb.lessThan(idPath, id) : cb.greaterThan(idPath, id)));
+        };
+    }
+}
\ No newline at end of file
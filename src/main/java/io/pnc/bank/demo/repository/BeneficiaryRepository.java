@@ -1,5 +1,6 @@
 package io.pnc.bank.demo.repository;
 
+import io.pnc.bank.demo.dto.BeneficiaryDTO;
 import io.pnc.bank.demo.model.Beneficiary;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -12,13 +13,21 @@ import java.util.Optional;
 @Repository
 public interface BeneficiaryRepository extends JpaRepository<Beneficiary, Long> {
     
-        @Query("SELECT b FROM Beneficiary b WHERE b.account.id = :id")
+        @Query("SELECT b FROM Beneficiary b WHERE b.account.id = :accountId")
     List<Beneficiary> findByAccountId(@Param("accountId") Long accountId);
     
-        @Query("SELECT b WHERE b.email = :email")
-    Optional<Beneficiary> findByEmail(@Param("email") String email);
+    // Same fields BeneficiaryMapper.toDTO produces, read in one statement without touching Account
+    String BENEFICIARY_DTO_SELECT = "SELECT new io.pnc.bank.demo.dto.BeneficiaryDTO(b.id, b.name, b.accountNumber, " +
+            "b.email, b.description, b.account.id, b.createdAt, true) FROM Beneficiary b ";
+    
+    @Query(BENEFICIARY_DTO_SELECT + "WHERE b.account.id = :accountId ORDER BY b.id")
+    List<BeneficiaryDTO> findDtosByAccountId(@Param("accountId") Long accountId);
     
-        List<Beneficiary> findByAccountNumberAndActive(String accountNumber, boolean active);
+    @Query(BENEFICIARY_DTO_SELECT + "WHERE b.id = :id")
+    Optional<BeneficiaryDTO> findDtoById(@Param("id") Long id);
+    
+        @Query("SELECT b FROM Beneficiary b WHERE b.email = :email")
+    Optional<Beneficiary> findByEmail(@Param("email") String email);
     
-        boolean existByAccountNumber(String accountNumber);
+        boolean existsByAccountNumber(String accountNumber);
 } 
\ No newline at end of file
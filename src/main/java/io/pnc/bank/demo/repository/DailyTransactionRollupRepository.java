@@ -0,0 +1,49 @@
+package io.pnc.bank.demo.repository;
+
+import io.pnc.bank.demo.dto.TransactionTypeTotal;
+import io.pnc.bank.demo.model.DailyTransactionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyTransactionRollupRepository extends JpaRepository<DailyTransactionRollup, Long> {
+
+    List<DailyTransactionRollup> findByRollupDate(LocalDate rollupDate);
+
+    // Native so the amount is bound as a plain DECIMAL; enum columns are passed by name
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE daily_transaction_rollups " +
+            "SET total_amount = total_amount + :amount, transaction_count = transaction_count + :count " +
+            "WHERE rollup_date = :rollupDate AND transaction_type = :transactionType " +
+            "AND account_type = :accountType")
+    int increment(@Param("rollupDate") LocalDate rollupDate, @Param("transactionType") String transactionType,
+                  @Param("accountType") String accountType,
+                  @Param("amount") BigDecimal amount, @Param("count") long count);
+
+    @Query("SELECT new io.pnc.bank.demo.dto.TransactionTypeTotal(r.transactionType, SUM(r.totalAmount), SUM(r.transactionCount)) " +
+            "FROM DailyTransactionRollup r WHERE r.rollupDate BETWEEN ?1 AND ?2 GROUP BY r.transactionType")
+    List<TransactionTypeTotal> sumGroupedByTypeAndDateBetween(LocalDate startDate, LocalDate endDate);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM DailyTransactionRollup r WHERE r.rollupDate = ?1")
+    int deleteByRollupDate(LocalDate rollupDate);
+
+    @Modifying(flushAutomatically = true)
+    @Query(nativeQuery = true, value = "INSERT INTO daily_transaction_rollups " +
+            "(rollup_date, transaction_type, account_type, total_amount, transaction_count) " +
+            "SELECT rollup_date, transaction_type, account_type, SUM(amount), COUNT(*) FROM (" +
+            "SELECT CAST(t.transaction_date AS DATE) AS rollup_date, t.transaction_type AS transaction_type, " +
+            "a.account_type AS account_type, t.amount AS amount " +
+            "FROM transactions t JOIN accounts a ON a.id = t.account_id " +
+            "WHERE t.transaction_date >= :start AND t.transaction_date < :end) day_rows " +
+            "GROUP BY rollup_date, transaction_type, account_type")
+    int insertAggregatedFromTransactions(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
\ No newline at end of file
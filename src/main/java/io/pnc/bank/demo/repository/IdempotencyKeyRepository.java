@@ -0,0 +1,48 @@
+package io.pnc.bank.demo.repository;
+
+import io.pnc.bank.demo.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    // A plain INSERT rather than save(): an assigned id would make save() merge, and the unique
+    // key must fail right here when a concurrent request with the same key committed first
+    @Modifying(flushAutomatically = true)
+    @Query(nativeQuery = true, value = "INSERT INTO idempotency_keys " +
+            "(idempotency_key, operation, request_hash, transaction_id, created_at) " +
+            "VALUES (:key, :operation, :requestHash, :transactionId, :createdAt)")
+    int insert(@Param("key") String key, @Param("operation") String operation,
+               @Param("requestHash") String requestHash, @Param("transactionId") Long transactionId,
+               @Param("createdAt") LocalDateTime createdAt);
+
+    // Reserves the key for a queued posting; fails on the primary key like insert()
+    @Modifying(flushAutomatically = true)
+    @Query(nativeQuery = true, value = "INSERT INTO idempotency_keys " +
+            "(idempotency_key, operation, request_hash, ticket_id, created_at) " +
+            "VALUES (:key, :operation, :requestHash, :ticketId, :createdAt)")
+    int insertPending(@Param("key") String key, @Param("operation") String operation,
+                      @Param("requestHash") String requestHash, @Param("ticketId") String ticketId,
+                      @Param("createdAt") LocalDateTime createdAt);
+
+    // Flushes first so the posting's transaction row exists for the foreign key
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE IdempotencyKey k SET k.transactionId = :transactionId " +
+            "WHERE k.key = :key AND k.ticketId = :ticketId AND k.transactionId IS NULL")
+    int completePending(@Param("key") String key, @Param("ticketId") String ticketId,
+                        @Param("transactionId") Long transactionId);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.key = :key AND k.ticketId = :ticketId AND k.transactionId IS NULL")
+    int deletePending(@Param("key") String key, @Param("ticketId") String ticketId);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.createdAt < ?1")
+    int deleteByCreatedAtBefore(LocalDateTime cutoff);
+}
\ No newline at end of file
@@ -1,17 +1,27 @@
 package io.pnc.bank.demo.repository;
 
+import io.pnc.bank.demo.dto.TransactionDTO;
+import io.pnc.bank.demo.dto.TransactionReportRow;
 import io.pnc.bank.demo.model.Account;
 import io.pnc.bank.demo.model.Transaction;
 import io.pnc.bank.demo.model.TransactionType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -20,9 +30,64 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     
     Page<Transaction> findByAccountId(Long accountId, Pageable pageable);
     
+    long countByAccountId(Long accountId);
+    
+    // DTO projections: the account columns come from the same join, so mapping a page never
+    // initializes Account proxies
+    String TRANSACTION_DTO_SELECT = "SELECT new io.pnc.bank.demo.dto.TransactionDTO(t.id, t.transactionType, t.amount, " +
+            "t.referenceId, t.description, t.transactionDate, a.id, a.accountNumber, t.balanceAfterTransaction) " +
+            "FROM Transaction t JOIN t.account a ";
+    
+    @Query(TRANSACTION_DTO_SELECT + "WHERE t.id = ?1")
+    Optional<TransactionDTO> findDtoById(Long id);
+    
+    @Query(value = TRANSACTION_DTO_SELECT + "WHERE a.id = ?1",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.account.id = ?1")
+    Page<TransactionDTO> findDtoPageByAccountId(Long accountId, Pageable pageable);
+    
+    // Only rows on or after the archive horizon; rows below it may linger while an archive run deletes them
+    @Query(value = TRANSACTION_DTO_SELECT + "WHERE a.id = ?1 AND t.transactionDate >= ?2",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.account.id = ?1 AND t.transactionDate >= ?2")
+    Page<TransactionDTO> findDtoPageByAccountIdFrom(Long accountId, LocalDateTime from, Pageable pageable);
+    
+    // Keyset history, newest first, served by idx_transactions_account_date_id. Pass
+    // PageRequest.of(0, n) as the limit; returning a List avoids the COUNT query.
+    @Query(TRANSACTION_DTO_SELECT + "WHERE a.id = ?1 ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionDTO> findHistoryFirstPage(Long accountId, Pageable limit);
+    
+    // The redundant transactionDate <= ?2 bound lets the index range scan start at the cursor
+    @Query(TRANSACTION_DTO_SELECT + "WHERE a.id = ?1 AND t.transactionDate <= ?2 " +
+            "AND (t.transactionDate < ?2 OR t.id < ?3) ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionDTO> findHistoryAfter(Long accountId, LocalDateTime transactionDate, Long id, Pageable limit);
+    
     List<Transaction> findByAccountAndTransactionDateBetweenOrderByTransactionDateDesc(
             Account account, LocalDateTime startDate, LocalDateTime endDate);
     
+    // Statement lines for one account in [from, to), oldest first; consume inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new io.pnc.bank.demo.dto.TransactionReportRow(t.id, t.transactionDate, a.accountNumber, " +
+            "t.transactionType, t.amount, t.balanceAfterTransaction, t.referenceId, t.description) " +
+            "FROM Transaction t JOIN t.account a WHERE a.id = ?1 AND t.transactionDate >= ?2 AND t.transactionDate < ?3 " +
+            "ORDER BY t.transactionDate, t.id")
+    Stream<TransactionReportRow> streamStatementRowsByAccountId(Long accountId, LocalDateTime from, LocalDateTime to);
+    
+    // Statement lines for accounts with ids in (afterId, upToId], grouped by account and oldest first
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new io.pnc.bank.demo.dto.TransactionReportRow(t.id, t.transactionDate, a.accountNumber, " +
+            "t.transactionType, t.amount, t.balanceAfterTransaction, t.referenceId, t.description) " +
+            "FROM Transaction t JOIN t.account a WHERE a.id > ?1 AND a.id <= ?2 " +
+            "AND t.transactionDate >= ?3 AND t.transactionDate < ?4 ORDER BY a.id, t.transactionDate, t.id")
+    Stream<TransactionReportRow> streamStatementRowsByAccountIdRange(Long afterId, Long upToId,
+                                                                     LocalDateTime from, LocalDateTime to);
+    
+    // Net movement of one account in [from, to): credits minus debits, served by idx_transactions_account_date_id
+    @Query(nativeQuery = true, value = "SELECT COALESCE(SUM(CASE WHEN transaction_type IN (:creditTypes) " +
+            "THEN amount ELSE -amount END), 0) FROM transactions " +
+            "WHERE account_id = :accountId AND transaction_date >= :from AND transaction_date < :to")
+    BigDecimal sumNetAmountByAccountIdAndDateRange(@Param("accountId") Long accountId, @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to,
+                                                   @Param("creditTypes") Collection<String> creditTypes);
+    
     @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.account = ?1 AND t.transactionType = ?2 AND t.transactionDate BETWEEN ?3 AND ?4")
     BigDecimal sumAmountByAccountAndTypeAndDateBetween(
             Account account, TransactionType transactionType, LocalDateTime startDate, LocalDateTime endDate);
@@ -30,4 +95,48 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.transactionType = ?1 AND t.transactionDate BETWEEN ?2 AND ?3")
     BigDecimal sumAmountByTypeAndDateBetween(
             TransactionType transactionType, LocalDateTime startDate, LocalDateTime endDate);
-} 
\ No newline at end of file
+    
+    // Forward-only cursor for reports; the caller must consume the stream inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new io.pnc.bank.demo.dto.TransactionReportRow(t.id, t.transactionDate, a.accountNumber, " +
+            "t.transactionType, t.amount, t.balanceAfterTransaction, t.referenceId, t.description) " +
+            "FROM Transaction t JOIN t.account a WHERE t.transactionDate BETWEEN ?1 AND ?2 " +
+            "ORDER BY t.transactionDate, t.id")
+    Stream<TransactionReportRow> streamReportRowsByDateBetween(LocalDateTime startDate, LocalDateTime endDate);
+    
+    // A month's rows for the archive, in the order segments store them
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(TRANSACTION_DTO_SELECT + "WHERE t.transactionDate >= ?1 AND t.transactionDate < ?2 " +
+            "ORDER BY a.id, t.transactionDate, t.id")
+    Stream<TransactionDTO> streamArchiveRows(LocalDateTime from, LocalDateTime to);
+    
+    // The same month's (id, account id) pairs in id order, for the segment's id index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT t.id, t.account.id FROM Transaction t " +
+            "WHERE t.transactionDate >= ?1 AND t.transactionDate < ?2 ORDER BY t.id")
+    Stream<Object[]> streamArchiveIds(LocalDateTime from, LocalDateTime to);
+    
+    // Forward-only cursors for the NDJSON export, in no particular order so no sort is needed;
+    // the caller must consume the stream inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(TRANSACTION_DTO_SELECT)
+    Stream<TransactionDTO> streamExportRows();
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(TRANSACTION_DTO_SELECT + "WHERE t.transactionDate >= ?1")
+    Stream<TransactionDTO> streamExportRowsFrom(LocalDateTime from);
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(TRANSACTION_DTO_SELECT + "WHERE t.transactionDate >= ?1 AND t.transactionDate < ?2")
+    Stream<TransactionDTO> streamExportRowsBetween(LocalDateTime from, LocalDateTime to);
+    
+    // Deletes up to :limit rows dated before :before; call repeatedly, one transaction each, until it returns 0
+    @Modifying
+    // (the outer date bound lets a partitioned table prune the months already detached)
+    @Query(nativeQuery = true, value = "DELETE FROM transactions WHERE transaction_date < :before AND id IN (" +
+            "SELECT id FROM transactions WHERE transaction_date < :before ORDER BY transaction_date FETCH FIRST :limit ROWS ONLY)")
+    int deleteChunkDatedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+    
+    @Query("SELECT MIN(t.transactionDate) FROM Transaction t")
+    LocalDateTime findEarliestTransactionDate();
+}
\ No newline at end of file
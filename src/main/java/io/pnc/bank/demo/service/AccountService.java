@@ -1,7 +1,10 @@
 package io.pnc.bank.demo.service;
 
 import io.pnc.bank.demo.dto.AccountDTO;
+import io.pnc.bank.demo.dto.AccountHolderMatchDTO;
+import io.pnc.bank.demo.dto.AccountSearchCriteria;
 import io.pnc.bank.demo.dto.CreateAccountRequest;
+import io.pnc.bank.demo.dto.CursorPage;
 import io.pnc.bank.demo.dto.UpdateAccountRequest;
 import io.pnc.bank.demo.model.AccountStatus;
 
@@ -9,7 +12,8 @@ import java.util.List;
 
 public interface AccountService {
     
-    List<AccountDTO> getAllAccounts();
+    // Keyset pagination: pass nextCursor from the previous page, with the same criteria, to continue
+    CursorPage<AccountDTO> searchAccounts(AccountSearchCriteria criteria, String cursor, int size, boolean includeTotal);
     
     AccountDTO getAccountById(Long id);
     
@@ -23,9 +27,14 @@ public interface AccountService {
     
     void deleteAccount(Long id);
     
-    boolean isAccountNumberExists(String accountNumber);
+    // 0 turns sharded balances off; N > 0 spreads the account's credits over N bucket rows
+    AccountDTO updateBalanceBuckets(Long id, int buckets);
     
-    List<AccountDTO> getAccountsByStatus(AccountStatus status);
+    boolean isAccountNumberExists(String accountNumber);
     
+    // Exact holder name; see searchAccounts for a paged prefix match
     List<AccountDTO> getAccountsByAccountHolder(String accountHolder);
+    
+    // Top matches for a holder name: by case-insensitive prefix, or fuzzy and best first
+    List<AccountHolderMatchDTO> searchAccountHolders(String query, boolean fuzzy, int limit);
 } 
\ No newline at end of file
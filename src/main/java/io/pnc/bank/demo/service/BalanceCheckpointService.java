@@ -0,0 +1,15 @@
+package io.pnc.bank.demo.service;
+
+import io.pnc.bank.demo.dto.BalanceAsOfDTO;
+
+import java.time.LocalDate;
+
+public interface BalanceCheckpointService {
+    
+    // Writes the end-of-day balance of every account that existed on the date and has no checkpoint for it yet
+    int createCheckpoints(LocalDate date);
+    
+    BalanceAsOfDTO getBalanceAsOf(Long accountId, LocalDate date);
+    
+    int purgeExpired();
+}
\ No newline at end of file
@@ -13,7 +13,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class BeneficiaryService {
@@ -33,11 +32,7 @@ public class BeneficiaryService {
 
     @Transactional(readOnly = true)
     public List<BeneficiaryDTO> getBeneficiariesByAccountId(Long accountId) {
-                List<Beneficiary> beneficiaries = beneficiaryRepository.findByAccountId(accountId);
-        
-                return beneficiaries.stream()
-                .map(beneficiaryMapper::toDTO)
-                .collect(Collectors.toList());
+        return beneficiaryRepository.findDtosByAccountId(accountId);
     }
 
     @Transactional
@@ -63,7 +58,7 @@ public class BeneficiaryService {
 
     @Transactional(readOnly = true)
     public BeneficiaryDTO getBeneficiary(Long beneficiaryId) {
-                Beneficiary beneficiary = beneficiaryRepository.findById(beneficiaryId).get();
-        return beneficiaryMapper.toDTO(beneficiary);
+        return beneficiaryRepository.findDtoById(beneficiaryId)
+                .orElseThrow(() -> new ResourceNotFoundException("Beneficiary not found with ID: " + beneficiaryId));
     }
 } 
\ No newline at end of file
@@ -0,0 +1,20 @@
+package io.pnc.bank.demo.service;
+
+import io.pnc.bank.demo.model.Transaction;
+import io.pnc.bank.demo.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+public interface DailyRollupService {
+    
+    void recordPostings(Collection<Transaction> transactions);
+    
+    Map<TransactionType, BigDecimal> getTotalsByType(LocalDate startDate, LocalDate endDate);
+    
+    void prepareDay(LocalDate date);
+    
+    long rebuild(LocalDate startDate, LocalDate endDate);
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package io.pnc.bank.demo.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+// Full snapshots for the data-warehouse feed as newline-delimited JSON, one object per line
+public interface ExportService {
+    
+    void writeAccounts(OutputStream outputStream, boolean gzip) throws IOException;
+    
+    // From startDate to endDate inclusive, or every transaction when both are null; archived rows included
+    void writeTransactions(LocalDate startDate, LocalDate endDate, OutputStream outputStream, boolean gzip) throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package io.pnc.bank.demo.service;
+
+import io.pnc.bank.demo.dto.TransactionDTO;
+
+import java.util.Map;
+import java.util.Optional;
+
+public interface IdempotencyService {
+    
+    String fingerprint(String operation, Object... fields);
+    
+    Optional<TransactionDTO> findCompleted(String key, String requestHash);
+    
+    void record(String key, String operation, String requestHash, TransactionDTO result);
+    
+    // Keys of asynchronous postings: reserved when the posting is queued, completed inside the
+    // posting transaction, released when the posting fails
+    Optional<String> findPendingTicket(String key, String requestHash);
+    
+    void reserve(String key, String operation, String requestHash, String ticketId);
+    
+    void completeReserved(String key, String ticketId, Long transactionId);
+    
+    void release(String key, String ticketId);
+    
+    int purgeExpired();
+    
+    Map<String, Long> getStatistics();
+}
\ No newline at end of file
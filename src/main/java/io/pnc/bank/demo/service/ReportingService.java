@@ -1,10 +1,17 @@
 package io.pnc.bank.demo.service;
 
+import io.pnc.bank.demo.dto.BalanceAsOfDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 
 public interface ReportingService {
     
     void generateDailyReport();
     
-    byte[] generateTransactionReport(LocalDate startDate, LocalDate endDate, String format);
-} 
\ No newline at end of file
+    void writeTransactionReport(LocalDate startDate, LocalDate endDate, String format, OutputStream outputStream) throws IOException;
+    
+    // Lines from startDate to endDate with a running balance; opening is the close of the day before startDate
+    void writeAccountStatement(BalanceAsOfDTO opening, LocalDate endDate, OutputStream outputStream) throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package io.pnc.bank.demo.service;
+
+import io.pnc.bank.demo.dto.StatementRunDTO;
+
+import java.time.YearMonth;
+
+public interface StatementBatchService {
+
+    // Writes a statement file for every account that existed in the month; partitions finished by an
+    // earlier run of the same month are skipped
+    StatementRunDTO generateMonthEndStatements(YearMonth month);
+}
\ No newline at end of file
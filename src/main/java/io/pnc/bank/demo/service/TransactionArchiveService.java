@@ -0,0 +1,9 @@
+package io.pnc.bank.demo.service;
+
+import io.pnc.bank.demo.dto.ArchiveRunDTO;
+
+public interface TransactionArchiveService {
+
+    // Moves every whole month older than the hot window into the archive
+    ArchiveRunDTO archiveExpiredMonths();
+}
\ No newline at end of file
@@ -1,12 +1,19 @@
 package io.pnc.bank.demo.service;
 
+import io.pnc.bank.demo.dto.BatchPostingRequest;
+import io.pnc.bank.demo.dto.BatchPostingResultDTO;
+import io.pnc.bank.demo.dto.CursorPage;
 import io.pnc.bank.demo.dto.DepositRequest;
+import io.pnc.bank.demo.dto.PostingInstruction;
+import io.pnc.bank.demo.dto.PostingTicketDTO;
 import io.pnc.bank.demo.dto.TransactionDTO;
 import io.pnc.bank.demo.dto.TransferRequest;
 import io.pnc.bank.demo.dto.WithdrawalRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Map;
@@ -15,6 +22,8 @@ public interface TransactionService {
     
     Page<TransactionDTO> getTransactionsByAccountId(Long accountId, Pageable pageable);
     
+    CursorPage<TransactionDTO> getTransactionHistory(Long accountId, String cursor, int size, boolean includeTotal);
+    
     Page<TransactionDTO> getTransactionsByAccountNumber(String accountNumber, Pageable pageable);
     
     TransactionDTO getTransactionById(Long transactionId);
@@ -25,7 +34,28 @@ public interface TransactionService {
     
     TransactionDTO transfer(TransferRequest transferRequest);
     
+    // A non-null idempotency key makes a repeat of the same request return the original result
+    TransactionDTO deposit(DepositRequest depositRequest, String idempotencyKey);
+    
+    TransactionDTO withdraw(WithdrawalRequest withdrawalRequest, String idempotencyKey);
+    
+    TransactionDTO transfer(TransferRequest transferRequest, String idempotencyKey);
+    
+    // Queues the posting for the group-commit pipeline; poll the returned ticket for the outcome.
+    // With an idempotency key, a repeat gets the earlier posting's ticket instead of a new one.
+    PostingTicketDTO submitPosting(PostingInstruction instruction, String idempotencyKey);
+    
+    PostingTicketDTO getPostingTicket(String ticketId);
+    
+    boolean isAsyncPostingEnabled();
+    
+    BatchPostingResultDTO postBatch(BatchPostingRequest batchPostingRequest);
+    
+    // Dry run: checks every instruction and its accounts against the in-memory account index, posts nothing.
+    // The body is a BatchPostingRequest as JSON, read as a stream.
+    BatchPostingResultDTO validateBatch(InputStream body) throws IOException;
+    
     Map<String, BigDecimal> getDailyTransactionSummary(LocalDate date);
     
-    byte[] generateTransactionReport(LocalDate startDate, LocalDate endDate, String format);
+    Map<String, Long> getPostingStatistics();
 } 
\ No newline at end of file
@@ -0,0 +1,124 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.dto.AccountHolderMatchDTO;
+import io.pnc.bank.demo.model.AccountStatus;
+import io.pnc.bank.demo.model.AccountType;
+import io.pnc.bank.demo.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Account holder search for the call centre: case-insensitive prefix matches, or fuzzy matches
+// ranked by trigram similarity so typos and partial names still find the account. On PostgreSQL the
+// prefix search is a range scan of the lower(account_holder) index from V12. With
+// bank.holder-search.pg-trgm (on in prod) fuzzy search runs on the trigram index from V11 and reads
+// only the top K rows; without it fuzzy search scores every holder here with the same similarity()
+// metric, which is only meant for the small demo database. Callers must hold a read-only transaction.
+@Component
+public class AccountHolderSearch {
+
+    // pg_trgm's default similarity threshold, as applied by the % operator
+    private static final double SIMILARITY_THRESHOLD = 0.3;
+
+    private final AccountRepository accountRepository;
+    private final boolean trigramIndex;
+
+    public AccountHolderSearch(AccountRepository accountRepository,
+                               @Value("${bank.holder-search.pg-trgm:false}") boolean trigramIndex) {
+        this.accountRepository = accountRepository;
+        this.trigramIndex = trigramIndex;
+    }
+
+    public List<AccountHolderMatchDTO> byPrefix(String prefix, int limit) {
+        String escaped = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        List<AccountHolderMatchDTO> matches = new ArrayList<>();
+        for (Object[] row : accountRepository.findHolderMatchesByPrefix(escaped, limit)) {
+            matches.add(toMatch(row, null));
+        }
+        return matches;
+    }
+
+    public List<AccountHolderMatchDTO> fuzzy(String query, int limit) {
+        if (trigramIndex) {
+            List<AccountHolderMatchDTO> matches = new ArrayList<>();
+            for (Object[] row : accountRepository.findHolderMatchesBySimilarity(query, limit)) {
+                matches.add(toMatch(row, ((Number) row[5]).doubleValue()));
+            }
+            return matches;
+        }
+        return scan(query, limit);
+    }
+
+    // Keeps the best `limit` matches in a min-heap while streaming every holder
+    private List<AccountHolderMatchDTO> scan(String query, int limit) {
+        Set<String> queryTrigrams = trigrams(query);
+        Comparator<AccountHolderMatchDTO> ranking = Comparator.comparingDouble(AccountHolderMatchDTO::getScore)
+                .thenComparing(AccountHolderMatchDTO::getAccountId, Comparator.reverseOrder());
+        PriorityQueue<AccountHolderMatchDTO> best = new PriorityQueue<>(limit + 1, ranking);
+        try (Stream<Object[]> holders = accountRepository.streamHolders()) {
+            Iterator<Object[]> iterator = holders.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                double score = similarity(queryTrigrams, trigrams((String) row[2]));
+                if (score >= SIMILARITY_THRESHOLD) {
+                    best.add(toMatch(row, score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+        List<AccountHolderMatchDTO> matches = new ArrayList<>(best);
+        matches.sort(ranking.reversed());
+        return matches;
+    }
+
+    // Shared trigrams over all distinct trigrams of the two strings, as pg_trgm's similarity()
+    private static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int shared = 0;
+        for (String trigram : a) {
+            if (b.contains(trigram)) {
+                shared++;
+            }
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    // Lower-cased words of letters and digits, each padded with two spaces before and one after
+    private static Set<String> trigrams(String value) {
+        Set<String> trigrams = new HashSet<>();
+        for (String word : value.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    private static AccountHolderMatchDTO toMatch(Object[] row, Double score) {
+        return AccountHolderMatchDTO.builder()
+                .accountId(((Number) row[0]).longValue())
+                .accountNumber((String) row[1])
+                .accountHolder((String) row[2])
+                .accountType(row[3] instanceof AccountType type ? type : AccountType.valueOf((String) row[3]))
+                .status(row[4] instanceof AccountStatus status ? status : AccountStatus.valueOf((String) row[4]))
+                .score(score)
+                .build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,197 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.cache.AccountLookupCache;
+import io.pnc.bank.demo.exception.ResourceNotFoundException;
+import io.pnc.bank.demo.model.Account;
+import io.pnc.bank.demo.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Runs each posting in its own transaction. PESSIMISTIC mode locks accounts in ascending id order
+// so opposite A->B / B->A transfers cannot deadlock; OPTIMISTIC mode relies on Account.version
+// and retries conflicting postings a bounded number of times.
+@Component
+@Slf4j
+public class AccountLockingEngine {
+
+    public enum LockMode {
+        PESSIMISTIC,
+        OPTIMISTIC
+    }
+
+    private final AccountRepository accountRepository;
+    private final AccountLookupCache accountLookupCache;
+    private final TransactionTemplate transactionTemplate;
+    private final LockMode lockMode;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+
+    private final LongAdder postings = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder optimisticConflicts = new LongAdder();
+    private final LongAdder lockFailures = new LongAdder();
+    private final LongAdder retriesExhausted = new LongAdder();
+
+    public AccountLockingEngine(AccountRepository accountRepository,
+                                AccountLookupCache accountLookupCache,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${bank.posting.lock-mode:PESSIMISTIC}") LockMode lockMode,
+                                @Value("${bank.posting.max-retries:5}") int maxRetries,
+                                @Value("${bank.posting.retry-backoff-ms:10}") long retryBackoffMs) {
+        this.accountRepository = accountRepository;
+        this.accountLookupCache = accountLookupCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lockMode = lockMode;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        log.info("Posting engine running in {} lock mode (max retries: {})", lockMode, maxRetries);
+    }
+
+    public <T> T execute(Supplier<T> posting) {
+        // Retrying only makes sense when we own the transaction boundary
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return posting.get();
+        }
+
+        int attempt = 0;
+        while (true) {
+            try {
+                T result = transactionTemplate.execute(status -> posting.get());
+                postings.increment();
+                return result;
+            } catch (ConcurrencyFailureException ex) {
+                if (ex instanceof OptimisticLockingFailureException) {
+                    optimisticConflicts.increment();
+                } else {
+                    lockFailures.increment();
+                }
+                if (attempt >= maxRetries) {
+                    retriesExhausted.increment();
+                    log.warn("Posting abandoned after {} retries: {}", attempt, ex.getMessage());
+                    throw ex;
+                }
+                attempt++;
+                retries.increment();
+                backOff(attempt);
+            }
+        }
+    }
+
+    // Must be called inside execute(); the result is keyed by account number in argument order
+    public Map<String, Account> lockAccounts(String... accountNumbers) {
+        return lockAccountsForPosting(Arrays.asList(accountNumbers), List.of());
+    }
+
+    // Like lockAccounts, but an account that is only credited and keeps a sharded balance is read
+    // without a row lock: its credits go to balance buckets and never touch the account row
+    public Map<String, Account> lockAccountsForPosting(Collection<String> debited, Collection<String> credited) {
+        List<String> numbers = Stream.concat(debited.stream(), credited.stream()).distinct().toList();
+        Map<String, Account> byNumber = lockExistingAccounts(numbers, creditOnly(debited, credited));
+
+        Map<String, Account> result = new LinkedHashMap<>();
+        for (String number : numbers) {
+            Account account = byNumber.get(number);
+            if (account == null) {
+                throw new ResourceNotFoundException("Account not found with account number: " + number);
+            }
+            result.put(number, account);
+        }
+        return result;
+    }
+
+    // Unknown account numbers are simply absent from the result
+    public Map<String, Account> lockExistingAccounts(Collection<String> accountNumbers) {
+        return lockExistingAccounts(accountNumbers, Set.of());
+    }
+
+    public Map<String, Account> lockExistingAccounts(Collection<String> accountNumbers, Set<String> creditOnly) {
+        if (accountNumbers.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Account> accounts;
+        if (lockMode == LockMode.PESSIMISTIC) {
+            // Ids come from the lookup cache; the bucket count it holds is checked against the rows below
+            Map<String, AccountLookupCache.CachedAccount> candidates = accountLookupCache.findAll(accountNumbers);
+            List<Long> lockIds = new ArrayList<>();
+            List<Long> readIds = new ArrayList<>();
+            for (AccountLookupCache.CachedAccount candidate : candidates.values()) {
+                if (candidate.balanceBuckets() > 0 && creditOnly.contains(candidate.accountNumber())) {
+                    readIds.add(candidate.id());
+                } else {
+                    lockIds.add(candidate.id());
+                }
+            }
+            accounts = new ArrayList<>(lockIds.isEmpty() ? List.of() : accountRepository.findAllByIdInOrderByIdForUpdate(lockIds));
+            if (!readIds.isEmpty()) {
+                accounts.addAll(accountRepository.findAllById(readIds));
+            }
+            for (Account account : accounts) {
+                if (account.getBalanceBuckets() != candidates.get(account.getAccountNumber()).balanceBuckets()) {
+                    accountLookupCache.evict(account.getAccountNumber());
+                    if (account.getBalanceBuckets() == 0 && readIds.contains(account.getId())) {
+                        // Read without a lock but no longer sharded: start over with fresh candidates
+                        throw new OptimisticLockingFailureException("Balance buckets of account "
+                                + account.getAccountNumber() + " changed");
+                    }
+                }
+            }
+        } else {
+            accounts = accountRepository.findByAccountNumberIn(accountNumbers);
+        }
+        return accounts.stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+    }
+
+    static Set<String> creditOnly(Collection<String> debited, Collection<String> credited) {
+        Set<String> creditOnly = new HashSet<>(credited);
+        creditOnly.removeAll(debited);
+        return creditOnly;
+    }
+
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("postings", postings.sum());
+        statistics.put("retries", retries.sum());
+        statistics.put("optimisticConflicts", optimisticConflicts.sum());
+        statistics.put("lockFailures", lockFailures.sum());
+        statistics.put("retriesExhausted", retriesExhausted.sum());
+        return statistics;
+    }
+
+    public LockMode getLockMode() {
+        return lockMode;
+    }
+
+    private void backOff(int attempt) {
+        // Linear backoff with jitter so colliding writers on a hot account spread out
+        long delay = retryBackoffMs * attempt + ThreadLocalRandom.current().nextLong(retryBackoffMs + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying posting", e);
+        }
+    }
+}
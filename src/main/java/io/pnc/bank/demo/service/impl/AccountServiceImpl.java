@@ -1,7 +1,13 @@
 package io.pnc.bank.demo.service.impl;
 
+import io.pnc.bank.demo.cache.AccountIndex;
+import io.pnc.bank.demo.cache.AccountLookupCache;
+import io.pnc.bank.demo.cache.DashboardMetricsCache;
 import io.pnc.bank.demo.dto.AccountDTO;
+import io.pnc.bank.demo.dto.AccountHolderMatchDTO;
+import io.pnc.bank.demo.dto.AccountSearchCriteria;
 import io.pnc.bank.demo.dto.CreateAccountRequest;
+import io.pnc.bank.demo.dto.CursorPage;
 import io.pnc.bank.demo.dto.UpdateAccountRequest;
 import io.pnc.bank.demo.exception.ResourceAlreadyExistsException;
 import io.pnc.bank.demo.exception.ResourceNotFoundException;
@@ -11,16 +17,26 @@ import io.pnc.bank.demo.model.AccountStatus;
 import io.pnc.bank.demo.model.Transaction;
 import io.pnc.bank.demo.model.TransactionType;
 import io.pnc.bank.demo.repository.AccountRepository;
+import io.pnc.bank.demo.repository.AccountSpecifications;
 import io.pnc.bank.demo.service.AccountService;
+import io.pnc.bank.demo.service.DailyRollupService;
+import io.pnc.bank.demo.util.AccountCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 @Slf4j
@@ -29,26 +45,124 @@ public class AccountServiceImpl implements AccountService {
 
     private final AccountRepository accountRepository;
     private final AccountMapper accountMapper;
+    private final DailyRollupService dailyRollupService;
+    private final DashboardMetricsCache dashboardMetricsCache;
+    private final AccountLookupCache accountLookupCache;
+    private final AccountIndex accountIndex;
+    private final AccountLockingEngine lockingEngine;
+    private final BalanceBucketLedger balanceBucketLedger;
+    private final AccountHolderSearch accountHolderSearch;
+
+    @Value("${bank.accounts.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${bank.holder-search.max-results:50}")
+    private int holderSearchMaxResults;
+
+    // Columns the listing can be ordered by, each backed by an index ending in id (see V10).
+    // Balance is the stored one, so credits still in balance buckets don't move an account.
+    private enum SortKey {
+        ID("id", Long::valueOf, Account::getId),
+        ACCOUNT_NUMBER("accountNumber", value -> value, Account::getAccountNumber),
+        ACCOUNT_HOLDER("accountHolder", value -> value, Account::getAccountHolder),
+        BALANCE("balance", BigDecimal::new, Account::getBalance),
+        CREATED_DATE("createdDate", LocalDateTime::parse, Account::getCreatedDate);
+
+        private final String attribute;
+        private final Function<String, Comparable<?>> parser;
+        private final Function<Account, Object> getter;
+
+        SortKey(String attribute, Function<String, Comparable<?>> parser, Function<Account, Object> getter) {
+            this.attribute = attribute;
+            this.parser = parser;
+            this.getter = getter;
+        }
+
+        static SortKey of(String attribute) {
+            return Arrays.stream(values()).filter(key -> key.attribute.equals(attribute)).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Cannot sort accounts by " + attribute));
+        }
+
+        String valueOf(Account account) {
+            Object value = getter.apply(account);
+            return value instanceof BigDecimal decimal ? decimal.toPlainString() : String.valueOf(value);
+        }
+    }
 
     @Override
     @Transactional(readOnly = true)
-    public List<AccountDTO> getAllAccounts() {
-        List<Account> accounts = accountRepository.findAll();
-        return accountMapper.toDtoList(accounts);
+    public CursorPage<AccountDTO> searchAccounts(AccountSearchCriteria criteria, String cursor, int size, boolean includeTotal) {
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+        SortKey sortKey = SortKey.of(criteria.getSort());
+        boolean descending = "desc".equalsIgnoreCase(criteria.getDirection());
+        if (!descending && !"asc".equalsIgnoreCase(criteria.getDirection())) {
+            throw new IllegalArgumentException("Direction must be asc or desc");
+        }
+        String sortName = sortKey.attribute + (descending ? ":desc" : ":asc");
+
+        Specification<Account> filter = Specification.allOf(
+                AccountSpecifications.hasStatus(criteria.getStatus()),
+                AccountSpecifications.hasType(criteria.getType()),
+                AccountSpecifications.holderStartsWith(criteria.getHolder()),
+                AccountSpecifications.balanceAtLeast(criteria.getMinBalance()),
+                AccountSpecifications.balanceAtMost(criteria.getMaxBalance()));
+        Specification<Account> page = filter;
+        if (cursor != null && !cursor.isBlank()) {
+            page = filter.and(after(sortKey, sortName, AccountCursor.decode(cursor), descending));
+        }
+
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = sortKey == SortKey.ID ? Sort.by(direction, "id") : Sort.by(direction, sortKey.attribute, "id");
+        // Fetch one extra row to learn whether another page follows, without counting
+        List<Account> accounts = accountRepository.findBy(page, query -> query.sortBy(sort).limit(size + 1).all());
+
+        boolean hasNext = accounts.size() > size;
+        if (hasNext) {
+            accounts = accounts.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            Account last = accounts.get(accounts.size() - 1);
+            nextCursor = new AccountCursor(sortName, sortKey.valueOf(last), last.getId()).encode();
+        }
+
+        return CursorPage.<AccountDTO>builder()
+                .content(toDtoList(accounts))
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .totalElements(includeTotal ? accountRepository.count(filter) : null)
+                .build();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Specification<Account> after(SortKey sortKey, String sortName, AccountCursor position, boolean descending) {
+        if (!sortName.equals(position.getSort())) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort order");
+        }
+        Comparable value;
+        try {
+            value = sortKey.parser.apply(position.getValue());
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return AccountSpecifications.after(sortKey.attribute, value, position.getId(), descending);
     }
 
     @Override
     @Transactional(readOnly = true)
     public AccountDTO getAccountById(Long id) {
         Account account = findAccountById(id);
-        return accountMapper.toDto(account);
+        return toDto(account);
     }
 
     @Override
     @Transactional(readOnly = true)
     public AccountDTO getAccountByAccountNumber(String accountNumber) {
         Account account = findAccountByAccountNumber(accountNumber);
-        return accountMapper.toDto(account);
+        return toDto(account);
     }
 
     @Override
@@ -75,27 +189,39 @@ public class AccountServiceImpl implements AccountService {
             
             account.addTransaction(initialDeposit);
             account = accountRepository.save(account);
+            dailyRollupService.recordPostings(List.of(initialDeposit));
+            dashboardMetricsCache.postingsRecorded(List.of(initialDeposit));
         }
+        dashboardMetricsCache.accountCreated(account.getStatus());
+        accountIndex.accountChanged(account);
 
-        return accountMapper.toDto(account);
+        return toDto(account);
     }
 
     @Override
     @Transactional
     public AccountDTO updateAccount(Long id, UpdateAccountRequest updateAccountRequest) {
         Account account = findAccountById(id);
+        AccountStatus previousStatus = account.getStatus();
         accountMapper.updateAccountFromDto(updateAccountRequest, account);
         account = accountRepository.save(account);
-        return accountMapper.toDto(account);
+        dashboardMetricsCache.accountStatusChanged(previousStatus, account.getStatus());
+        accountLookupCache.invalidate(account.getAccountNumber());
+        accountIndex.accountChanged(account);
+        return toDto(account);
     }
 
     @Override
     @Transactional
     public AccountDTO updateAccountStatus(Long id, AccountStatus status) {
         Account account = findAccountById(id);
+        AccountStatus previousStatus = account.getStatus();
         account.setStatus(status);
         account = accountRepository.save(account);
-        return accountMapper.toDto(account);
+        dashboardMetricsCache.accountStatusChanged(previousStatus, status);
+        accountLookupCache.invalidate(account.getAccountNumber());
+        accountIndex.accountChanged(account);
+        return toDto(account);
     }
 
     @Override
@@ -104,30 +230,69 @@ public class AccountServiceImpl implements AccountService {
         Account account = findAccountById(id);
         
         // Soft delete by changing status to CLOSED
+        AccountStatus previousStatus = account.getStatus();
         account.setStatus(AccountStatus.CLOSED);
         accountRepository.save(account);
+        dashboardMetricsCache.accountStatusChanged(previousStatus, AccountStatus.CLOSED);
+        accountLookupCache.invalidate(account.getAccountNumber());
+        accountIndex.accountChanged(account);
         
         log.info("Account with ID {} has been marked as CLOSED", id);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public boolean isAccountNumberExists(String accountNumber) {
-        return accountRepository.existsByAccountNumber(accountNumber);
+    public AccountDTO updateBalanceBuckets(Long id, int buckets) {
+        return lockingEngine.execute(() -> {
+            String accountNumber = findAccountById(id).getAccountNumber();
+            Account account = lockingEngine.lockAccounts(accountNumber).get(accountNumber);
+            balanceBucketLedger.reconfigure(account, buckets);
+            accountLookupCache.invalidate(accountNumber);
+            return toDto(accountRepository.save(account));
+        });
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<AccountDTO> getAccountsByStatus(AccountStatus status) {
-        List<Account> accounts = accountRepository.findByStatus(status);
-        return accountMapper.toDtoList(accounts);
+    public boolean isAccountNumberExists(String accountNumber) {
+        return accountLookupCache.exists(accountNumber);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<AccountDTO> getAccountsByAccountHolder(String accountHolder) {
         List<Account> accounts = accountRepository.findByAccountHolder(accountHolder);
-        return accountMapper.toDtoList(accounts);
+        return toDtoList(accounts);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AccountHolderMatchDTO> searchAccountHolders(String query, boolean fuzzy, int limit) {
+        if (limit < 1 || limit > holderSearchMaxResults) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + holderSearchMaxResults);
+        }
+        String trimmed = query == null ? "" : query.trim();
+        // Shorter queries match too much of the table to rank usefully
+        int minLength = fuzzy ? 3 : 2;
+        if (trimmed.length() < minLength) {
+            throw new IllegalArgumentException("Search needs at least " + minLength + " characters");
+        }
+        return fuzzy ? accountHolderSearch.fuzzy(trimmed, limit) : accountHolderSearch.byPrefix(trimmed, limit);
+    }
+
+    // Sharded accounts report their balance including credits still sitting in balance buckets
+    private AccountDTO toDto(Account account) {
+        return toDtoList(List.of(account)).get(0);
+    }
+
+    private List<AccountDTO> toDtoList(List<Account> accounts) {
+        List<AccountDTO> dtos = accountMapper.toDtoList(accounts);
+        Map<Long, BigDecimal> totalBalances = balanceBucketLedger.getTotalBalances(accounts);
+        if (!totalBalances.isEmpty()) {
+            for (AccountDTO dto : dtos) {
+                dto.setBalance(totalBalances.getOrDefault(dto.getId(), dto.getBalance()));
+            }
+        }
+        return dtos;
     }
 
     private Account findAccountById(Long id) {
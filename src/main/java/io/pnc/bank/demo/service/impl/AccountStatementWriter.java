@@ -0,0 +1,72 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.dto.TransactionReportRow;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+// One account statement in CSV, shared by the statement endpoint and the month-end batch so both
+// produce the same file. Lines must be passed oldest first; the running balance is computed from
+// the opening balance rather than read from balanceAfterTransaction, which credits to sharded
+// accounts leave empty.
+class AccountStatementWriter {
+
+    private final Writer writer;
+    private BigDecimal balance;
+    private BigDecimal credits = BigDecimal.ZERO;
+    private BigDecimal debits = BigDecimal.ZERO;
+    private long lines;
+
+    AccountStatementWriter(Writer writer, String accountNumber, LocalDate startDate, LocalDate endDate,
+                           BigDecimal openingBalance) throws IOException {
+        this.writer = writer;
+        this.balance = openingBalance;
+        writer.append("PNC Bank Account Statement\n");
+        writer.append("Account Number,").append(accountNumber).append("\n");
+        writer.append("Statement Period: ").append(String.valueOf(startDate)).append(" to ").append(String.valueOf(endDate)).append("\n");
+        writer.append("Opening Balance,").append(openingBalance.toPlainString()).append("\n\n");
+        writer.append("Transaction ID,Date,Type,Amount,Balance,Reference ID,Description\n");
+    }
+
+    void line(TransactionReportRow row) throws IOException {
+        if (row.getTransactionType().isCredit()) {
+            balance = balance.add(row.getAmount());
+            credits = credits.add(row.getAmount());
+        } else {
+            balance = balance.subtract(row.getAmount());
+            debits = debits.add(row.getAmount());
+        }
+        writer.append(String.valueOf(row.getId())).append(',')
+                .append(row.getTransactionDate().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append(',')
+                .append(row.getTransactionType().name()).append(',')
+                .append(row.getAmount().toPlainString()).append(',')
+                .append(balance.toPlainString()).append(',')
+                .append(csvValue(row.getReferenceId())).append(',')
+                .append(csvValue(row.getDescription())).append('\n');
+        lines++;
+    }
+
+    void finish() throws IOException {
+        writer.append("\nTotal Credits,").append(credits.toPlainString()).append("\n");
+        writer.append("Total Debits,").append(debits.toPlainString()).append("\n");
+        writer.append("Closing Balance,").append(balance.toPlainString()).append("\n");
+        writer.flush();
+    }
+
+    long getLines() {
+        return lines;
+    }
+
+    static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.model.Account;
+import io.pnc.bank.demo.repository.AccountBalanceBucketRepository;
+import io.pnc.bank.demo.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sharded balances for hot accounts (fee collection, payroll funding). An account with
+// balanceBuckets > 0 takes each credit as an increment to one of its bucket rows, picked at
+// random, so concurrent credits contend on N rows instead of the single account row. Debits lock
+// the account, fold the buckets back into Account.balance and check against that exact figure;
+// reads add the buckets on top. A periodic sweep keeps the balance column close to current.
+@Component
+@Slf4j
+public class BalanceBucketLedger {
+
+    private final AccountBalanceBucketRepository bucketRepository;
+    private final AccountRepository accountRepository;
+    private final AccountLockingEngine lockingEngine;
+    private final int maxBuckets;
+
+    private final LongAdder bucketCredits = new LongAdder();
+    private final LongAdder consolidations = new LongAdder();
+
+    public BalanceBucketLedger(AccountBalanceBucketRepository bucketRepository,
+                               AccountRepository accountRepository,
+                               AccountLockingEngine lockingEngine,
+                               @Value("${bank.balance-buckets.max-buckets:64}") int maxBuckets) {
+        this.bucketRepository = bucketRepository;
+        this.accountRepository = accountRepository;
+        this.lockingEngine = lockingEngine;
+        this.maxBuckets = maxBuckets;
+    }
+
+    public boolean isSharded(Account account) {
+        return account.getBalanceBuckets() > 0;
+    }
+
+    // Inside the posting transaction; the account row is neither locked nor changed
+    public void credit(Account account, BigDecimal amount) {
+        int bucket = ThreadLocalRandom.current().nextInt(account.getBalanceBuckets());
+        if (bucketRepository.addToBucket(account.getId(), bucket, amount) == 0) {
+            // The buckets were reconfigured after the account was read; the engine retries the posting
+            throw new OptimisticLockingFailureException("Balance buckets of account " + account.getAccountNumber() + " changed");
+        }
+        bucketCredits.increment();
+    }
+
+    // The account must be locked; afterwards its balance is exact and its buckets are empty
+    public void consolidate(Account account) {
+        BigDecimal pending = bucketRepository.lockAmountsByAccountId(account.getId()).stream()
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (pending.signum() != 0) {
+            bucketRepository.clearByAccountId(account.getId());
+            account.setBalance(account.getBalance().add(pending));
+        }
+        consolidations.increment();
+    }
+
+    // The account must be locked; 0 folds the buckets back in and turns sharding off
+    public void reconfigure(Account account, int buckets) {
+        if (buckets < 0 || buckets > maxBuckets) {
+            throw new IllegalArgumentException("Balance buckets must be between 0 and " + maxBuckets);
+        }
+        if (isSharded(account)) {
+            consolidate(account);
+            bucketRepository.deleteByAccountId(account.getId());
+        }
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            bucketRepository.insertEmptyBucket(account.getId(), bucket);
+        }
+        account.setBalanceBuckets(buckets);
+        log.info("Account {} now keeps its balance in {} buckets", account.getAccountNumber(), buckets);
+    }
+
+    // Balances including unconsolidated credits, for the sharded accounts among the given ones
+    public Map<Long, BigDecimal> getTotalBalances(Collection<Account> accounts) {
+        List<Long> ids = accounts.stream().filter(this::isSharded).map(Account::getId).toList();
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        for (Object[] row : bucketRepository.findTotalBalancesByAccountIdIn(ids)) {
+            balances.put(((Number) row[0]).longValue(), (BigDecimal) row[1]);
+        }
+        return balances;
+    }
+
+    @Scheduled(fixedDelayString = "${bank.balance-buckets.consolidate-interval:PT5M}")
+    public void consolidateAll() {
+        // One short transaction per account, so credits queue behind each sweep only briefly
+        for (String accountNumber : accountRepository.findAccountNumbersWithBalanceBuckets()) {
+            lockingEngine.execute(() -> {
+                Account account = lockingEngine.lockAccounts(accountNumber).get(accountNumber);
+                if (isSharded(account)) {
+                    consolidate(account);
+                }
+                return null;
+            });
+        }
+    }
+
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("bucketCredits", bucketCredits.sum());
+        statistics.put("consolidations", consolidations.sum());
+        return statistics;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,165 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.archive.TransactionArchive;
+import io.pnc.bank.demo.dto.BalanceAsOfDTO;
+import io.pnc.bank.demo.exception.ResourceNotFoundException;
+import io.pnc.bank.demo.model.Account;
+import io.pnc.bank.demo.model.AccountBalanceCheckpoint;
+import io.pnc.bank.demo.model.TransactionType;
+import io.pnc.bank.demo.repository.AccountBalanceCheckpointRepository;
+import io.pnc.bank.demo.repository.AccountRepository;
+import io.pnc.bank.demo.repository.TransactionRepository;
+import io.pnc.bank.demo.service.BalanceCheckpointService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+// End-of-day balance checkpoints. A checkpoint is the account's current total balance minus
+// everything posted after that day, so it is correct whenever the job runs; accounts are
+// checkpointed in id ranges, one transaction each, so no single statement spans the whole table.
+// Daily checkpoints are kept for bank.statement.checkpoint-retention-days, month-end ones for good.
+@Service
+@Slf4j
+public class BalanceCheckpointServiceImpl implements BalanceCheckpointService {
+
+    private static final List<String> CREDIT_TYPES = Arrays.stream(TransactionType.values())
+            .filter(TransactionType::isCredit)
+            .map(Enum::name)
+            .toList();
+
+    private final AccountBalanceCheckpointRepository checkpointRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive transactionArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int retentionDays;
+
+    public BalanceCheckpointServiceImpl(AccountBalanceCheckpointRepository checkpointRepository,
+                                        AccountRepository accountRepository,
+                                        TransactionRepository transactionRepository,
+                                        TransactionArchive transactionArchive,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${bank.statement.checkpoint-chunk-size:10000}") int chunkSize,
+                                        @Value("${bank.statement.checkpoint-retention-days:35}") int retentionDays) {
+        this.checkpointRepository = checkpointRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionArchive = transactionArchive;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.retentionDays = retentionDays;
+    }
+
+    @Scheduled(cron = "${bank.statement.checkpoint-cron:0 15 0 * * ?}")
+    public void checkpointPreviousDay() {
+        createCheckpoints(LocalDate.now().minusDays(1));
+    }
+
+    @Override
+    public int createCheckpoints(LocalDate date) {
+        if (!date.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Only days that have ended can be checkpointed");
+        }
+        LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
+        // Checkpoints are derived from the hot table alone
+        LocalDateTime horizon = transactionArchive.getHorizon();
+        if (horizon != null && endOfDay.isBefore(horizon)) {
+            throw new IllegalArgumentException("Transactions for " + date + " have been archived");
+        }
+        Long maxAccountId = checkpointRepository.findMaxAccountId();
+        long started = System.nanoTime();
+
+        int written = 0;
+        for (long afterId = 0; maxAccountId != null && afterId < maxAccountId; afterId += chunkSize) {
+            long from = afterId;
+            Integer rows = transactionTemplate.execute(status -> checkpointRepository.insertCheckpoints(
+                    date, endOfDay, from, from + chunkSize, CREDIT_TYPES));
+            written += rows != null ? rows : 0;
+        }
+
+        log.info("Balance checkpoints for {}: {} accounts in {}", date, written,
+                Duration.ofNanos(System.nanoTime() - started));
+        return written;
+    }
+
+    // Rolls forward from the latest checkpoint on or before the date, adding only the movements in
+    // between; without one, works back from the current balance
+    @Override
+    @Transactional(readOnly = true)
+    public BalanceAsOfDTO getBalanceAsOf(Long accountId, LocalDate date) {
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new ResourceNotFoundException("Account not found with ID: " + accountId));
+        LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
+
+        Optional<AccountBalanceCheckpoint> checkpoint = checkpointRepository
+                .findFirstByAccountIdAndCheckpointDateLessThanEqualOrderByCheckpointDateDesc(accountId, date);
+        // Movements before the archive horizon are read from the archive, the rest from the table
+        LocalDateTime horizon = transactionArchive.getHorizon();
+        BigDecimal balance;
+        if (checkpoint.isPresent()) {
+            LocalDateTime since = checkpoint.get().getCheckpointDate().plusDays(1).atStartOfDay();
+            balance = checkpoint.get().getBalance();
+            if (horizon != null && since.isBefore(horizon)) {
+                balance = balance.add(transactionArchive.sumNetAmount(accountId, since, endOfDay));
+                since = horizon;
+            }
+            if (since.isBefore(endOfDay)) {
+                balance = balance.add(
+                        transactionRepository.sumNetAmountByAccountIdAndDateRange(accountId, since, endOfDay, CREDIT_TYPES));
+            }
+        } else if (horizon != null && endOfDay.isBefore(horizon)) {
+            balance = checkpointRepository.computeBalanceBefore(accountId, horizon, CREDIT_TYPES)
+                    .subtract(transactionArchive.sumNetAmount(accountId, endOfDay, horizon));
+        } else {
+            balance = checkpointRepository.computeBalanceBefore(accountId, endOfDay, CREDIT_TYPES);
+        }
+
+        return BalanceAsOfDTO.builder()
+                .accountId(accountId)
+                .accountNumber(account.getAccountNumber())
+                .asOf(date)
+                .balance(balance)
+                .checkpointDate(checkpoint.map(AccountBalanceCheckpoint::getCheckpointDate).orElse(null))
+                .build();
+    }
+
+    @Override
+    @Transactional
+    @Scheduled(cron = "${bank.statement.checkpoint-purge-cron:0 45 0 * * ?}")
+    public int purgeExpired() {
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        LocalDate earliest = checkpointRepository.findEarliestCheckpointDate();
+        if (earliest == null || !earliest.isBefore(cutoff)) {
+            return 0;
+        }
+
+        List<LocalDate> monthEnds = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(earliest); !month.atEndOfMonth().isAfter(cutoff); month = month.plusMonths(1)) {
+            monthEnds.add(month.atEndOfMonth());
+        }
+        if (monthEnds.isEmpty()) {
+            // NOT IN () is not valid SQL; no month end falls in the range, so nothing needs keeping
+            monthEnds.add(cutoff);
+        }
+        int purged = checkpointRepository.deleteByCheckpointDateBeforeAndCheckpointDateNotIn(cutoff, monthEnds);
+        if (purged > 0) {
+            log.info("Purged {} daily balance checkpoints before {}", purged, cutoff);
+        }
+        return purged;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,272 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.archive.TransactionArchive;
+import io.pnc.bank.demo.dto.TransactionTypeTotal;
+import io.pnc.bank.demo.model.AccountType;
+import io.pnc.bank.demo.model.DailyTransactionRollup;
+import io.pnc.bank.demo.model.Transaction;
+import io.pnc.bank.demo.model.TransactionType;
+import io.pnc.bank.demo.repository.DailyTransactionRollupRepository;
+import io.pnc.bank.demo.repository.TransactionRepository;
+import io.pnc.bank.demo.service.DailyRollupService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Keeps daily_transaction_rollups in step with the ledger, so summaries and report totals read a
+// handful of rows per day instead of scanning the transactions table. Postings never touch the
+// rollup rows: once a posting commits its amounts are added to an in-memory accumulator, which
+// is applied every bank.rollup.flush-interval in one transaction, in key order, by a single
+// flusher (and on shutdown). Totals therefore trail the ledger by up to one interval, and a crash
+// loses at most one interval of deltas, which rebuild repairs.
+@Service
+@Slf4j
+public class DailyRollupServiceImpl implements DailyRollupService {
+
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator
+            .comparing(RollupKey::date)
+            .thenComparing(RollupKey::transactionType)
+            .thenComparing(RollupKey::accountType);
+
+    private final DailyTransactionRollupRepository rollupRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive transactionArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+
+    // Committed deltas not yet written; drained under flushLock
+    private final Map<RollupKey, Delta> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+
+    public DailyRollupServiceImpl(DailyTransactionRollupRepository rollupRepository,
+                                  TransactionRepository transactionRepository,
+                                  TransactionArchive transactionArchive,
+                                  PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionArchive = transactionArchive;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Call from the posting transaction; the amounts are only counted once it commits
+    @Override
+    public void recordPostings(Collection<Transaction> transactions) {
+        Map<RollupKey, Delta> deltas = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            RollupKey key = new RollupKey(transaction.getTransactionDate().toLocalDate(),
+                    transaction.getTransactionType(),
+                    transaction.getAccount().getAccountType());
+            deltas.computeIfAbsent(key, k -> new Delta()).add(transaction.getAmount(), 1);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accumulate(deltas);
+                }
+            });
+        } else {
+            accumulate(deltas);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<TransactionType, BigDecimal> getTotalsByType(LocalDate startDate, LocalDate endDate) {
+        return TransactionTypeTotal.toAmountsByType(
+                rollupRepository.sumGroupedByTypeAndDateBetween(startDate, endDate));
+    }
+
+    @Scheduled(fixedDelayString = "${bank.rollup.flush-interval:PT1S}")
+    @PreDestroy
+    public void flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            // Rows are updated in a fixed order, so a flush and a rebuild take their locks in the same sequence
+            Map<RollupKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+            for (RollupKey key : pending.keySet()) {
+                Delta delta = pending.remove(key);
+                if (delta != null) {
+                    deltas.put(key, delta);
+                }
+            }
+            try {
+                newTransactionTemplate.executeWithoutResult(status -> deltas.forEach(this::apply));
+            } catch (RuntimeException ex) {
+                log.error("Daily rollup flush of {} rows failed, retrying on the next one: {}", deltas.size(), ex.getMessage(), ex);
+                accumulate(deltas);
+            }
+        }
+    }
+
+    // Create today's and tomorrow's rows up front so postings only ever update existing rows
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareOnStartup() {
+        prepareDay(LocalDate.now());
+        prepareDay(LocalDate.now().plusDays(1));
+    }
+
+    @Scheduled(cron = "${bank.rollup.prepare-cron:0 30 23 * * ?}")
+    public void prepareNextDay() {
+        prepareDay(LocalDate.now().plusDays(1));
+    }
+
+    @Override
+    public void prepareDay(LocalDate date) {
+        Set<RollupKey> existing = new HashSet<>();
+        for (DailyTransactionRollup rollup : rollupRepository.findByRollupDate(date)) {
+            existing.add(new RollupKey(rollup.getRollupDate(), rollup.getTransactionType(), rollup.getAccountType()));
+        }
+
+        List<RollupKey> missing = new ArrayList<>();
+        for (TransactionType transactionType : TransactionType.values()) {
+            for (AccountType accountType : AccountType.values()) {
+                RollupKey key = new RollupKey(date, transactionType, accountType);
+                if (!existing.contains(key)) {
+                    missing.add(key);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            createRows(missing);
+            log.info("Prepared {} daily rollup rows for {}", missing.size(), date);
+        }
+    }
+
+    // Recomputes whole days from the transactions table, one transaction per day. Defaults to every
+    // closed day up to yesterday. Each day is rebuilt under the flush lock right after a flush, so
+    // deltas already committed are in the table and not added again later; a day still taking
+    // postings can still be off by the ones that commit while it is being recomputed.
+    @Override
+    public long rebuild(LocalDate startDate, LocalDate endDate) {
+        // Archived days are no longer in the table; rebuilding them would wipe their rollups
+        LocalDateTime horizon = transactionArchive.getHorizon();
+        boolean defaultStart = startDate == null;
+        if (defaultStart) {
+            LocalDateTime earliest = transactionRepository.findEarliestTransactionDate();
+            startDate = earliest != null ? earliest.toLocalDate() : LocalDate.now();
+            if (horizon != null && startDate.isBefore(horizon.toLocalDate())) {
+                startDate = horizon.toLocalDate();
+            }
+        } else if (horizon != null && startDate.isBefore(horizon.toLocalDate())) {
+            throw new IllegalArgumentException("Transactions before " + horizon.toLocalDate() + " have been archived");
+        }
+        if (endDate == null) {
+            endDate = LocalDate.now().minusDays(1);
+        }
+        if (endDate.isBefore(startDate)) {
+            if (defaultStart) {
+                log.info("No closed days to rebuild daily rollups for");
+                return 0;
+            }
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+
+        long rows = 0;
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            LocalDate rollupDate = day;
+            synchronized (flushLock) {
+                flush();
+                rows += transactionTemplate.execute(status -> {
+                    rollupRepository.deleteByRollupDate(rollupDate);
+                    return rollupRepository.insertAggregatedFromTransactions(
+                            rollupDate.atStartOfDay(), rollupDate.plusDays(1).atStartOfDay());
+                });
+            }
+        }
+        log.info("Rebuilt daily rollups from {} to {}: {} rows", startDate, endDate, rows);
+        return rows;
+    }
+
+    private void accumulate(Map<RollupKey, Delta> deltas) {
+        deltas.forEach((key, delta) -> pending.merge(key, delta, Delta::plus));
+    }
+
+    private void apply(RollupKey key, Delta delta) {
+        if (increment(key, delta) == 0) {
+            // First posting for this row (prepareDay normally creates them ahead of time)
+            createRows(List.of(key));
+            if (increment(key, delta) == 0) {
+                throw new IllegalStateException("Daily rollup row could not be created for " + key);
+            }
+        }
+    }
+
+    private int increment(RollupKey key, Delta delta) {
+        return rollupRepository.increment(key.date(), key.transactionType().name(), key.accountType().name(),
+                delta.amount, delta.count);
+    }
+
+    private void createRows(List<RollupKey> keys) {
+        // Inserted and committed on their own so the rows are visible to every posting right away;
+        // a concurrent creator winning the race is fine
+        try {
+            newTransactionTemplate.executeWithoutResult(status -> {
+                List<DailyTransactionRollup> rollups = new ArrayList<>(keys.size());
+                for (RollupKey key : keys) {
+                    rollups.add(DailyTransactionRollup.builder()
+                            .rollupDate(key.date())
+                            .transactionType(key.transactionType())
+                            .accountType(key.accountType())
+                            .totalAmount(BigDecimal.ZERO)
+                            .transactionCount(0)
+                            .build());
+                }
+                rollupRepository.saveAllAndFlush(rollups);
+            });
+        } catch (DataIntegrityViolationException ex) {
+            log.debug("Daily rollup rows already created concurrently: {}", ex.getMessage());
+            if (keys.size() > 1) {
+                keys.forEach(key -> createRows(List.of(key)));
+            }
+        }
+    }
+
+    private record RollupKey(LocalDate date, TransactionType transactionType, AccountType accountType) {
+    }
+
+    private static class Delta {
+        private BigDecimal amount = BigDecimal.ZERO;
+        private long count;
+
+        void add(BigDecimal value, long rows) {
+            amount = amount.add(value);
+            count += rows;
+        }
+
+        Delta plus(Delta other) {
+            Delta sum = new Delta();
+            sum.add(amount.add(other.amount), count + other.count);
+            return sum;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,165 @@
+package io.pnc.bank.demo.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.pnc.bank.demo.archive.TransactionArchive;
+import io.pnc.bank.demo.dto.AccountDTO;
+import io.pnc.bank.demo.dto.TransactionDTO;
+import io.pnc.bank.demo.monitoring.BankMetrics;
+import io.pnc.bank.demo.repository.AccountRepository;
+import io.pnc.bank.demo.repository.TransactionRepository;
+import io.pnc.bank.demo.service.ExportService;
+import io.pnc.bank.demo.util.CountingOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Rows go from the database cursor (bounded fetch size) through Jackson's generator into a fixed
+// 64 KB buffer, so memory stays flat however large the snapshot is. Nothing is collected into a
+// list or an ApiResponse; a failure part way simply ends the response early.
+@Service
+@Slf4j
+public class ExportServiceImpl implements ExportService {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchive transactionArchive;
+    private final BankMetrics bankMetrics;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter rowWriter;
+
+    public ExportServiceImpl(AccountRepository accountRepository,
+                             TransactionRepository transactionRepository,
+                             TransactionArchive transactionArchive,
+                             BankMetrics bankMetrics,
+                             ObjectMapper objectMapper) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionArchive = transactionArchive;
+        this.bankMetrics = bankMetrics;
+        this.objectMapper = objectMapper;
+        // The default flushes after every value, which would send each row as its own chunk
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void writeAccounts(OutputStream outputStream, boolean gzip) throws IOException {
+        export("accountExport", outputStream, gzip, lines -> {
+            try (Stream<AccountDTO> accounts = accountRepository.streamExportRows()) {
+                lines.writeAll(accounts);
+            }
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void writeTransactions(LocalDate startDate, LocalDate endDate, OutputStream outputStream, boolean gzip) throws IOException {
+        if ((startDate == null) != (endDate == null)) {
+            throw new IllegalArgumentException("startDate and endDate must be given together");
+        }
+        if (startDate != null && endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before the start date");
+        }
+        LocalDateTime from = startDate != null ? startDate.atStartOfDay() : null;
+        LocalDateTime to = endDate != null ? endDate.plusDays(1).atStartOfDay() : null;
+
+        export("transactionExport", outputStream, gzip, lines -> {
+            // Rows before the horizon are read from the archive only, so none is written twice
+            // while an archive run is still deleting the months it moved
+            LocalDateTime hotFrom = from;
+            LocalDateTime horizon = transactionArchive.getHorizon();
+            if (horizon != null && (from == null || from.isBefore(horizon))) {
+                transactionArchive.scan(from, to, lines::write);
+                hotFrom = horizon;
+            }
+            if (to != null && !hotFrom.isBefore(to)) {
+                return;
+            }
+            try (Stream<TransactionDTO> transactions = to != null ? transactionRepository.streamExportRowsBetween(hotFrom, to)
+                    : hotFrom != null ? transactionRepository.streamExportRowsFrom(hotFrom)
+                    : transactionRepository.streamExportRows()) {
+                lines.writeAll(transactions);
+            }
+        });
+    }
+
+    private void export(String kind, OutputStream outputStream, boolean gzip, Export export) throws IOException {
+        CountingOutputStream counted = new CountingOutputStream(outputStream);
+        long started = System.nanoTime();
+        boolean completed = false;
+        NdjsonWriter lines = new NdjsonWriter(counted, gzip);
+        try {
+            export.writeTo(lines);
+            lines.finish();
+            completed = true;
+        } finally {
+            bankMetrics.reportWritten(kind, System.nanoTime() - started, lines.rows, counted.getCount(), completed);
+        }
+        log.info("{} completed with {} rows, {} bytes{}", kind, lines.rows, counted.getCount(), gzip ? " gzipped" : "");
+    }
+
+    // Fastest level: the feed should be limited by the network, not by deflate
+    private static OutputStream gzip(OutputStream target) throws IOException {
+        return new GZIPOutputStream(target, WRITE_BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+    }
+
+    private interface Export {
+        void writeTo(NdjsonWriter lines) throws IOException;
+    }
+
+    private final class NdjsonWriter {
+
+        private final OutputStream out;
+        private final JsonGenerator generator;
+        private long rows;
+
+        NdjsonWriter(OutputStream target, boolean gzip) throws IOException {
+            this.out = gzip ? gzip(target) : new BufferedOutputStream(target, WRITE_BUFFER_SIZE);
+            this.generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are terminated explicitly instead of separated by the default space
+            this.generator.setRootValueSeparator(null);
+        }
+
+        void write(Object row) throws IOException {
+            rowWriter.writeValue(generator, row);
+            generator.writeRaw('\n');
+            rows++;
+        }
+
+        void writeAll(Stream<?> rows) throws IOException {
+            Iterator<?> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                write(iterator.next());
+            }
+        }
+
+        // Leaves the response stream open for the container to complete
+        void finish() throws IOException {
+            generator.flush();
+            if (out instanceof GZIPOutputStream gzipped) {
+                gzipped.finish();
+            }
+            out.flush();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,204 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.cache.BoundedTtlCache;
+import io.pnc.bank.demo.dto.TransactionDTO;
+import io.pnc.bank.demo.exception.IdempotencyKeyReusedException;
+import io.pnc.bank.demo.model.IdempotencyKey;
+import io.pnc.bank.demo.repository.IdempotencyKeyRepository;
+import io.pnc.bank.demo.repository.TransactionRepository;
+import io.pnc.bank.demo.service.IdempotencyService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+// Remembers which Idempotency-Key produced which posting. The durable record is a key row written
+// inside the posting transaction (an asynchronous posting reserves it when queued and fills in
+// the transaction as it commits); recent keys are also held in a bounded in-memory cache so a
+// retry storm is answered without touching the database at all. Keys are honoured for at least
+// bank.idempotency.ttl and purged from the table after that.
+@Service
+@Slf4j
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final char FIELD_SEPARATOR = '\u001f';
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionRepository transactionRepository;
+    private final Duration ttl;
+    private final BoundedTtlCache<String, CompletedRequest> recentKeys;
+
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder purged = new LongAdder();
+
+    public IdempotencyServiceImpl(IdempotencyKeyRepository idempotencyKeyRepository,
+                                  TransactionRepository transactionRepository,
+                                  @Value("${bank.idempotency.ttl:24h}") Duration ttl,
+                                  @Value("${bank.idempotency.cache-max-entries:10000}") int cacheMaxEntries) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionRepository = transactionRepository;
+        this.ttl = ttl;
+        this.recentKeys = new BoundedTtlCache<>(cacheMaxEntries, ttl);
+    }
+
+    // Amounts are normalised so "100", "100.0" and "100.00" count as the same request
+    @Override
+    public String fingerprint(String operation, Object... fields) {
+        StringBuilder canonical = new StringBuilder(operation);
+        for (Object field : fields) {
+            canonical.append(FIELD_SEPARATOR);
+            if (field instanceof BigDecimal amount) {
+                canonical.append(amount.stripTrailingZeros().toPlainString());
+            } else if (field != null) {
+                canonical.append(field);
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<TransactionDTO> findCompleted(String key, String requestHash) {
+        validateKey(key);
+
+        CompletedRequest cached = recentKeys.get(key);
+        if (cached != null) {
+            return Optional.of(replay(key, requestHash, cached));
+        }
+
+        Optional<IdempotencyKey> stored = idempotencyKeyRepository.findById(key);
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        if (stored.get().getTransactionId() == null) {
+            // Reserved by a queued posting that has not committed yet
+            checkSameRequest(key, requestHash, stored.get().getRequestHash());
+            return Optional.empty();
+        }
+        TransactionDTO result = transactionRepository.findDtoById(stored.get().getTransactionId())
+                .orElseThrow(() -> new IllegalStateException("Transaction for idempotency key " + key + " no longer exists"));
+        CompletedRequest completed = new CompletedRequest(stored.get().getRequestHash(), result);
+        recentKeys.put(key, completed);
+        return Optional.of(replay(key, requestHash, completed));
+    }
+
+    // Must run inside the posting transaction; the insert fails on the primary key when a
+    // concurrent request with the same key got there first, rolling this posting back
+    @Override
+    public void record(String key, String operation, String requestHash, TransactionDTO result) {
+        validateKey(key);
+        idempotencyKeyRepository.insert(key, operation, requestHash, result.getId(), LocalDateTime.now());
+
+        CompletedRequest completed = new CompletedRequest(requestHash, result);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentKeys.put(key, completed);
+                }
+            });
+        } else {
+            recentKeys.put(key, completed);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<String> findPendingTicket(String key, String requestHash) {
+        validateKey(key);
+        Optional<IdempotencyKey> stored = idempotencyKeyRepository.findById(key)
+                .filter(pending -> pending.getTransactionId() == null && pending.getTicketId() != null);
+        stored.ifPresent(pending -> checkSameRequest(key, requestHash, pending.getRequestHash()));
+        return stored.map(IdempotencyKey::getTicketId);
+    }
+
+    // Runs in its own transaction before the posting is queued, so the writer always finds the row
+    @Override
+    @Transactional
+    public void reserve(String key, String operation, String requestHash, String ticketId) {
+        validateKey(key);
+        idempotencyKeyRepository.insertPending(key, operation, requestHash, ticketId, LocalDateTime.now());
+    }
+
+    // Must run inside the posting transaction. Fails when the reservation is gone, i.e. the key was
+    // released and taken by a later request, so the posting rolls back instead of posting twice
+    @Override
+    public void completeReserved(String key, String ticketId, Long transactionId) {
+        if (idempotencyKeyRepository.completePending(key, ticketId, transactionId) == 0) {
+            throw new IllegalStateException("Idempotency key " + key + " is no longer reserved for this posting");
+        }
+    }
+
+    @Override
+    @Transactional
+    public void release(String key, String ticketId) {
+        idempotencyKeyRepository.deletePending(key, ticketId);
+    }
+
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${bank.idempotency.purge-interval:PT1H}")
+    public int purgeExpired() {
+        int deleted = idempotencyKeyRepository.deleteByCreatedAtBefore(LocalDateTime.now().minus(ttl));
+        purged.add(deleted);
+        if (deleted > 0) {
+            log.info("Purged {} idempotency keys older than {}", deleted, ttl);
+        }
+        return deleted;
+    }
+
+    @Override
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("replays", replays.sum());
+        statistics.put("rejected", rejected.sum());
+        statistics.put("purged", purged.sum());
+        recentKeys.getStatistics().forEach((name, value) -> statistics.put("cache." + name, value));
+        return statistics;
+    }
+
+    private TransactionDTO replay(String key, String requestHash, CompletedRequest completed) {
+        checkSameRequest(key, requestHash, completed.requestHash());
+        replays.increment();
+        log.info("Replaying transaction {} for idempotency key {}", completed.result().getId(), key);
+        return completed.result();
+    }
+
+    private void checkSameRequest(String key, String requestHash, String storedHash) {
+        if (!storedHash.equals(requestHash)) {
+            rejected.increment();
+            throw new IdempotencyKeyReusedException("Idempotency key " + key + " was already used for a different request");
+        }
+    }
+
+    private void validateKey(String key) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    private record CompletedRequest(String requestHash, TransactionDTO result) {
+    }
+}
\ No newline at end of file
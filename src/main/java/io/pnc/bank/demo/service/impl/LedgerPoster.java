@@ -0,0 +1,260 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.cache.DashboardMetricsCache;
+import io.pnc.bank.demo.dto.PostingInstruction;
+import io.pnc.bank.demo.dto.PostingItemResultDTO;
+import io.pnc.bank.demo.exception.InsufficientBalanceException;
+import io.pnc.bank.demo.exception.ResourceNotFoundException;
+import io.pnc.bank.demo.model.Account;
+import io.pnc.bank.demo.model.AccountStatus;
+import io.pnc.bank.demo.model.Transaction;
+import io.pnc.bank.demo.model.TransactionType;
+import io.pnc.bank.demo.monitoring.BankMetrics;
+import io.pnc.bank.demo.repository.TransactionRepository;
+import io.pnc.bank.demo.service.DailyRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Applies postings to accounts already locked by AccountLockingEngine. Balances are changed in
+// memory and the returned Transaction rows are stored through persist(), so single and batch
+// postings share the same rules and side effects.
+@Component
+@RequiredArgsConstructor
+public class LedgerPoster {
+
+    private final TransactionRepository transactionRepository;
+    private final AccountLockingEngine lockingEngine;
+    private final DailyRollupService dailyRollupService;
+    private final DashboardMetricsCache dashboardMetricsCache;
+    private final BalanceBucketLedger balanceBucketLedger;
+    private final BankMetrics bankMetrics;
+
+    public Transaction deposit(Account account, BigDecimal amount, String description,
+                               String referenceId, LocalDateTime transactionDate) {
+        // Ensure account is active
+        requireActive(account, TransactionType.DEPOSIT);
+
+        return credit(account, amount, TransactionType.DEPOSIT, description, referenceId, transactionDate);
+    }
+
+    public Transaction withdraw(Account account, BigDecimal amount, String description,
+                                String referenceId, LocalDateTime transactionDate) {
+        // Ensure account is active
+        requireActive(account, TransactionType.WITHDRAWAL);
+
+        // Check sufficient balance
+        if (availableBalance(account).compareTo(amount) < 0) {
+            bankMetrics.postingRejected(BankMetrics.INSUFFICIENT_BALANCE, TransactionType.WITHDRAWAL);
+            throw new InsufficientBalanceException("Insufficient balance for withdrawal from account " + account.getAccountNumber());
+        }
+
+        return debit(account, amount, TransactionType.WITHDRAWAL, description, referenceId, transactionDate);
+    }
+
+    // Returns the outgoing transaction followed by the incoming one
+    public List<Transaction> transfer(Account sourceAccount, Account destinationAccount, BigDecimal amount,
+                                      String description, String referenceId, LocalDateTime transactionDate) {
+        // Ensure accounts are active
+        requireActive(sourceAccount, TransactionType.TRANSFER_OUT);
+        requireActive(destinationAccount, TransactionType.TRANSFER_IN);
+
+        // Check sufficient balance
+        if (availableBalance(sourceAccount).compareTo(amount) < 0) {
+            bankMetrics.postingRejected(BankMetrics.INSUFFICIENT_BALANCE, TransactionType.TRANSFER_OUT);
+            throw new InsufficientBalanceException("Insufficient balance for transfer from account " + sourceAccount.getAccountNumber());
+        }
+
+        Transaction outgoingTransaction = debit(sourceAccount, amount, TransactionType.TRANSFER_OUT,
+                "Transfer to " + destinationAccount.getAccountNumber() + (description != null ? ": " + description : ""),
+                referenceId, transactionDate);
+        Transaction incomingTransaction = credit(destinationAccount, amount, TransactionType.TRANSFER_IN,
+                "Transfer from " + sourceAccount.getAccountNumber() + (description != null ? ": " + description : ""),
+                referenceId, transactionDate);
+        return List.of(outgoingTransaction, incomingTransaction);
+    }
+
+    // Posts a chunk of instructions inside the current transaction. Rejected instructions leave
+    // balances untouched and are reported individually; all new rows are inserted with one saveAll.
+    public List<PostingItemResultDTO> postInstructions(List<PostingInstruction> instructions, int firstIndex) {
+        Set<String> accountNumbers = new HashSet<>();
+        for (PostingInstruction instruction : instructions) {
+            if (instruction.getAccountNumber() != null) {
+                accountNumbers.add(instruction.getAccountNumber());
+            }
+            if (instruction.getToAccountNumber() != null) {
+                accountNumbers.add(instruction.getToAccountNumber());
+            }
+        }
+        Map<String, Account> accounts = lockingEngine.lockExistingAccounts(accountNumbers,
+                AccountLockingEngine.creditOnly(debitedAccountNumbers(instructions), accountNumbers));
+
+        List<PostingItemResultDTO> results = new ArrayList<>(instructions.size());
+        List<Transaction> firstTransactions = new ArrayList<>(instructions.size());
+        List<Transaction> pending = new ArrayList<>(instructions.size() * 2);
+        LocalDateTime transactionDate = LocalDateTime.now();
+
+        for (int i = 0; i < instructions.size(); i++) {
+            PostingInstruction instruction = instructions.get(i);
+            try {
+                List<Transaction> posted = apply(instruction, accounts, transactionDate);
+                pending.addAll(posted);
+                firstTransactions.add(posted.get(0));
+                results.add(null);
+            } catch (ResourceNotFoundException | InsufficientBalanceException
+                     | IllegalArgumentException | IllegalStateException ex) {
+                firstTransactions.add(null);
+                results.add(PostingItemResultDTO.failure(firstIndex + i, ex.getMessage()));
+            }
+        }
+
+        persist(pending);
+
+        for (int i = 0; i < results.size(); i++) {
+            Transaction transaction = firstTransactions.get(i);
+            if (transaction != null) {
+                results.set(i, PostingItemResultDTO.builder()
+                        .index(firstIndex + i)
+                        .success(true)
+                        .transactionId(transaction.getId())
+                        .referenceId(transaction.getReferenceId())
+                        .balanceAfterTransaction(transaction.getBalanceAfterTransaction())
+                        .build());
+            }
+        }
+        return results;
+    }
+
+    // Stores new rows inside the posting transaction; the daily rollups and dashboard figures
+    // follow once it commits
+    public List<Transaction> persist(List<Transaction> transactions) {
+        // Ids come from the pooled sequence, so they are assigned here and inserted in JDBC batches
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        dailyRollupService.recordPostings(saved);
+        dashboardMetricsCache.postingsRecorded(saved);
+        return saved;
+    }
+
+    // Sharded accounts are consolidated first, so the check sees every committed credit
+    private BigDecimal availableBalance(Account account) {
+        if (balanceBucketLedger.isSharded(account)) {
+            balanceBucketLedger.consolidate(account);
+        }
+        return account.getBalance();
+    }
+
+    private Set<String> debitedAccountNumbers(List<PostingInstruction> instructions) {
+        Set<String> debited = new HashSet<>();
+        for (PostingInstruction instruction : instructions) {
+            if (instruction.getOperation() != PostingInstruction.Operation.DEPOSIT && instruction.getAccountNumber() != null) {
+                debited.add(instruction.getAccountNumber());
+            }
+        }
+        return debited;
+    }
+
+    // Counted as a rejection only here, where a posting is actually attempted, not in dry runs
+    private void requireActive(Account account, TransactionType type) {
+        if (account.getStatus() != AccountStatus.ACTIVE) {
+            bankMetrics.postingRejected(BankMetrics.ACCOUNT_NOT_ACTIVE, type);
+        }
+        validateAccountIsActive(account);
+    }
+
+    public void validateAccountIsActive(Account account) {
+        validateAccountIsActive(account.getAccountNumber(), account.getStatus());
+    }
+
+    public void validateAccountIsActive(String accountNumber, AccountStatus status) {
+        if (status != AccountStatus.ACTIVE) {
+            throw new IllegalStateException("Account " + accountNumber + " is not active. Current status: " + status);
+        }
+    }
+
+    // The checks that need no account: operation, amount and description
+    public void validateInstruction(PostingInstruction instruction) {
+        if (instruction.getOperation() == null) {
+            throw new IllegalArgumentException("Operation is required");
+        }
+        if (instruction.getAmount() == null || instruction.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (instruction.getDescription() != null && instruction.getDescription().length() > 255) {
+            throw new IllegalArgumentException("Description cannot exceed 255 characters");
+        }
+    }
+
+    private List<Transaction> apply(PostingInstruction instruction, Map<String, Account> accounts,
+                                    LocalDateTime transactionDate) {
+        validateInstruction(instruction);
+
+        Account account = requireAccount(accounts, instruction.getAccountNumber());
+        String referenceId = UUID.randomUUID().toString();
+
+        switch (instruction.getOperation()) {
+            case DEPOSIT:
+                return List.of(deposit(account, instruction.getAmount(), instruction.getDescription(),
+                        referenceId, transactionDate));
+            case WITHDRAWAL:
+                return List.of(withdraw(account, instruction.getAmount(), instruction.getDescription(),
+                        referenceId, transactionDate));
+            case TRANSFER:
+                Account destinationAccount = requireAccount(accounts, instruction.getToAccountNumber());
+                return transfer(account, destinationAccount, instruction.getAmount(), instruction.getDescription(),
+                        referenceId, transactionDate);
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + instruction.getOperation());
+        }
+    }
+
+    private Account requireAccount(Map<String, Account> accounts, String accountNumber) {
+        if (accountNumber == null || accountNumber.isBlank()) {
+            throw new IllegalArgumentException("Account number is required");
+        }
+        Account account = accounts.get(accountNumber);
+        if (account == null) {
+            throw new ResourceNotFoundException("Account not found with account number: " + accountNumber);
+        }
+        return account;
+    }
+
+    private Transaction credit(Account account, BigDecimal amount, TransactionType type, String description,
+                               String referenceId, LocalDateTime transactionDate) {
+        if (balanceBucketLedger.isSharded(account)) {
+            // No running balance: it is only known once the buckets are consolidated
+            balanceBucketLedger.credit(account, amount);
+            return buildTransaction(account, amount, type, description, referenceId, transactionDate, null);
+        }
+        BigDecimal newBalance = account.getBalance().add(amount);
+        account.setBalance(newBalance);
+        return buildTransaction(account, amount, type, description, referenceId, transactionDate, newBalance);
+    }
+
+    private Transaction debit(Account account, BigDecimal amount, TransactionType type, String description,
+                              String referenceId, LocalDateTime transactionDate) {
+        BigDecimal newBalance = account.getBalance().subtract(amount);
+        account.setBalance(newBalance);
+        return buildTransaction(account, amount, type, description, referenceId, transactionDate, newBalance);
+    }
+
+    private Transaction buildTransaction(Account account, BigDecimal amount, TransactionType type, String description,
+                                         String referenceId, LocalDateTime transactionDate, BigDecimal balanceAfter) {
+        return Transaction.builder()
+                .account(account)
+                .amount(amount)
+                .transactionType(type)
+                .description(description)
+                .transactionDate(transactionDate)
+                .referenceId(referenceId)
+                .balanceAfterTransaction(balanceAfter)
+                .build();
+    }
+}
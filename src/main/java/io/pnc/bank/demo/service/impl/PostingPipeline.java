@@ -0,0 +1,365 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.cache.AccountIndex;
+import io.pnc.bank.demo.cache.BoundedTtlCache;
+import io.pnc.bank.demo.dto.PostingInstruction;
+import io.pnc.bank.demo.dto.PostingItemResultDTO;
+import io.pnc.bank.demo.dto.PostingTicketDTO;
+import io.pnc.bank.demo.exception.PostingQueueFullException;
+import io.pnc.bank.demo.service.IdempotencyService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Optional write-behind posting (bank.posting.pipeline.enabled). Postings are queued by account
+// partition; one writer thread per partition drains its queue and commits whatever has gathered
+// within bank.posting.pipeline.linger (up to max-group-size postings) as a single transaction
+// through LedgerPoster.postInstructions, so a group shares its lock round trips, batched inserts
+// and commit. Callers get a ticket that completes once the group has committed.
+@Component
+@Slf4j
+public class PostingPipeline {
+
+    private final LedgerPoster ledgerPoster;
+    private final AccountLockingEngine lockingEngine;
+    private final AccountIndex accountIndex;
+    private final IdempotencyService idempotencyService;
+    private final boolean enabled;
+    private final int maxGroupSize;
+    private final long lingerNanos;
+    private final Duration drainTimeout;
+    private final List<BlockingQueue<PendingPosting>> partitions = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private final BoundedTtlCache<String, PostingTicketDTO> tickets;
+
+    private volatile boolean running;
+    // Enqueuing holds the read lock from the running check to the offer, so once stop() has the
+    // write lock nothing more can reach a queue the writers are about to leave
+    private final ReadWriteLock admission = new ReentrantReadWriteLock();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder screenedOut = new LongAdder();
+    private final LongAdder groupsCommitted = new LongAdder();
+    private final LongAdder postingsCommitted = new LongAdder();
+    private final LongAdder groupsRetried = new LongAdder();
+
+    public PostingPipeline(LedgerPoster ledgerPoster,
+                           AccountLockingEngine lockingEngine,
+                           AccountIndex accountIndex,
+                           IdempotencyService idempotencyService,
+                           @Value("${bank.posting.pipeline.enabled:false}") boolean enabled,
+                           @Value("${bank.posting.pipeline.partitions:4}") int partitionCount,
+                           @Value("${bank.posting.pipeline.queue-capacity:10000}") int queueCapacity,
+                           @Value("${bank.posting.pipeline.max-group-size:500}") int maxGroupSize,
+                           @Value("${bank.posting.pipeline.linger:5ms}") Duration linger,
+                           @Value("${bank.posting.pipeline.drain-timeout:30s}") Duration drainTimeout,
+                           @Value("${bank.posting.pipeline.ticket-ttl:1h}") Duration ticketTtl,
+                           @Value("${bank.posting.pipeline.max-tickets:100000}") int maxTickets) {
+        this.ledgerPoster = ledgerPoster;
+        this.lockingEngine = lockingEngine;
+        this.accountIndex = accountIndex;
+        this.idempotencyService = idempotencyService;
+        this.enabled = enabled;
+        this.maxGroupSize = maxGroupSize;
+        this.lingerNanos = linger.toNanos();
+        this.drainTimeout = drainTimeout;
+        this.tickets = new BoundedTtlCache<>(maxTickets, ticketTtl);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new ArrayBlockingQueue<>(queueCapacity));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < partitions.size(); i++) {
+            BlockingQueue<PendingPosting> queue = partitions.get(i);
+            Thread writer = new Thread(() -> runWriter(queue), "posting-writer-" + i);
+            writer.start();
+            writers.add(writer);
+        }
+        log.info("Posting pipeline started with {} partitions (max group size {}, linger {})",
+                partitions.size(), maxGroupSize, Duration.ofNanos(lingerNanos));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // A posting that cannot succeed is rejected here with IllegalArgumentException or
+    // IllegalStateException instead of being queued
+    public PostingTicketDTO submit(PostingInstruction instruction) {
+        return pendingTicket(enqueue(instruction, null));
+    }
+
+    // The key is reserved before the posting is queued and completed in the posting's own
+    // transaction; a concurrent request holding the same key fails the reservation with
+    // DataIntegrityViolationException
+    public PostingTicketDTO submit(PostingInstruction instruction, IdempotentRequest idempotentRequest) {
+        return pendingTicket(enqueue(instruction, idempotentRequest));
+    }
+
+    // For in-process callers that want to wait on the outcome rather than poll a ticket
+    public CompletableFuture<PostingItemResultDTO> submitForResult(PostingInstruction instruction) {
+        return enqueue(instruction, null).future();
+    }
+
+    public Optional<PostingTicketDTO> getTicket(String ticketId) {
+        return Optional.ofNullable(tickets.get(ticketId));
+    }
+
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("queued", (long) partitions.stream().mapToInt(BlockingQueue::size).sum());
+        statistics.put("submitted", submitted.sum());
+        statistics.put("rejected", rejected.sum());
+        statistics.put("screenedOut", screenedOut.sum());
+        statistics.put("groupsCommitted", groupsCommitted.sum());
+        statistics.put("postingsCommitted", postingsCommitted.sum());
+        statistics.put("groupsRetried", groupsRetried.sum());
+        return statistics;
+    }
+
+    @PreDestroy
+    public void stop() {
+        admission.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            // Stop taking new work, then let the writers drain what is already queued
+            running = false;
+        } finally {
+            admission.writeLock().unlock();
+        }
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        for (Thread writer : writers) {
+            try {
+                writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // Whatever the writers did not reach in time fails, rather than staying PENDING
+        List<PendingPosting> abandoned = new ArrayList<>();
+        partitions.forEach(queue -> queue.drainTo(abandoned));
+        if (!abandoned.isEmpty()) {
+            log.warn("Posting pipeline stopped with {} postings still queued", abandoned.size());
+            IllegalStateException stopped = new IllegalStateException("Posting pipeline stopped before the posting was committed");
+            abandoned.forEach(posting -> fail(posting, stopped));
+        }
+    }
+
+    private PendingPosting enqueue(PostingInstruction instruction, IdempotentRequest idempotentRequest) {
+        // A posting that cannot succeed is turned away here instead of taking a place in a group
+        screen(instruction);
+
+        admission.readLock().lock();
+        try {
+            if (!running) {
+                throw new PostingQueueFullException("Asynchronous posting is not available");
+            }
+            PendingPosting posting = new PendingPosting(UUID.randomUUID().toString(), instruction, idempotentRequest,
+                    LocalDateTime.now(), new CompletableFuture<>());
+            if (idempotentRequest != null) {
+                idempotencyService.reserve(idempotentRequest.key(), idempotentRequest.operation(),
+                        idempotentRequest.requestHash(), posting.ticketId());
+            }
+
+            tickets.put(posting.ticketId(), pendingTicket(posting));
+
+            if (!partitionFor(instruction).offer(posting)) {
+                tickets.remove(posting.ticketId());
+                release(posting);
+                rejected.increment();
+                throw new PostingQueueFullException("Posting queue is full, please retry");
+            }
+            submitted.increment();
+            return posting;
+        } finally {
+            admission.readLock().unlock();
+        }
+    }
+
+    private void screen(PostingInstruction instruction) {
+        try {
+            ledgerPoster.validateInstruction(instruction);
+            screenAccount(instruction.getAccountNumber());
+            if (instruction.getOperation() == PostingInstruction.Operation.TRANSFER) {
+                screenAccount(instruction.getToAccountNumber());
+            }
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            screenedOut.increment();
+            throw ex;
+        }
+    }
+
+    // Only accounts the index knows to be inactive are turned away; an unknown number may belong
+    // to an account created since the index was loaded and is left to the writer
+    private void screenAccount(String accountNumber) {
+        AccountIndex.Entry account = accountNumber != null ? accountIndex.find(accountNumber) : null;
+        if (account != null) {
+            ledgerPoster.validateAccountIsActive(accountNumber, account.status());
+        }
+    }
+
+    // All postings debiting the same account land on the same writer, in arrival order
+    private BlockingQueue<PendingPosting> partitionFor(PostingInstruction instruction) {
+        String accountNumber = instruction.getAccountNumber() != null ? instruction.getAccountNumber() : "";
+        return partitions.get(Math.floorMod(accountNumber.hashCode(), partitions.size()));
+    }
+
+    private void runWriter(BlockingQueue<PendingPosting> queue) {
+        List<PendingPosting> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingPosting first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                collectGroup(queue, group);
+                commit(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Posting writer failed on a group of {} postings", group.size(), e);
+                group.forEach(posting -> fail(posting, e));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    // Waits at most the linger time for more postings once the first one has arrived
+    private void collectGroup(BlockingQueue<PendingPosting> queue, List<PendingPosting> group) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        while (group.size() < maxGroupSize) {
+            queue.drainTo(group, maxGroupSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= maxGroupSize || remaining <= 0) {
+                return;
+            }
+            PendingPosting next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void commit(List<PendingPosting> group) {
+        List<PostingInstruction> instructions = group.stream().map(PendingPosting::instruction).toList();
+        List<PostingItemResultDTO> results;
+        try {
+            results = lockingEngine.execute(() -> settleKeys(group, ledgerPoster.postInstructions(instructions, 0)));
+        } catch (RuntimeException ex) {
+            // The whole group rolled back; post one at a time so a bad posting only fails itself
+            log.warn("Group commit of {} postings failed, retrying individually: {}", group.size(), ex.getMessage());
+            groupsRetried.increment();
+            for (PendingPosting posting : group) {
+                try {
+                    complete(posting, lockingEngine.execute(() ->
+                            settleKeys(List.of(posting), ledgerPoster.postInstructions(List.of(posting.instruction()), 0))).get(0));
+                } catch (RuntimeException e) {
+                    fail(posting, e);
+                }
+            }
+            return;
+        }
+
+        groupsCommitted.increment();
+        postingsCommitted.add(group.size());
+        for (int i = 0; i < group.size(); i++) {
+            complete(group.get(i), results.get(i));
+        }
+    }
+
+    // Runs inside the group's transaction: a posted key gets its transaction, a failed one is
+    // released so the client can retry it
+    private List<PostingItemResultDTO> settleKeys(List<PendingPosting> group, List<PostingItemResultDTO> results) {
+        for (int i = 0; i < group.size(); i++) {
+            IdempotentRequest idempotentRequest = group.get(i).idempotentRequest();
+            if (idempotentRequest == null) {
+                continue;
+            }
+            PostingItemResultDTO result = results.get(i);
+            if (result.isSuccess()) {
+                idempotencyService.completeReserved(idempotentRequest.key(), group.get(i).ticketId(), result.getTransactionId());
+            } else {
+                idempotencyService.release(idempotentRequest.key(), group.get(i).ticketId());
+            }
+        }
+        return results;
+    }
+
+    private PostingTicketDTO pendingTicket(PendingPosting posting) {
+        return PostingTicketDTO.builder()
+                .ticketId(posting.ticketId())
+                .status(PostingTicketDTO.Status.PENDING)
+                .submittedAt(posting.submittedAt())
+                .build();
+    }
+
+    private void complete(PendingPosting posting, PostingItemResultDTO result) {
+        result.setIndex(0);
+        tickets.put(posting.ticketId(), PostingTicketDTO.builder()
+                .ticketId(posting.ticketId())
+                .status(result.isSuccess() ? PostingTicketDTO.Status.COMPLETED : PostingTicketDTO.Status.FAILED)
+                .submittedAt(posting.submittedAt())
+                .completedAt(LocalDateTime.now())
+                .result(result)
+                .build());
+        posting.future().complete(result);
+    }
+
+    private void fail(PendingPosting posting, RuntimeException ex) {
+        release(posting);
+        complete(posting, PostingItemResultDTO.failure(0, ex.getMessage()));
+    }
+
+    // A reservation left behind here is released by the next request with the key, once it finds
+    // the ticket FAILED or gone
+    private void release(PendingPosting posting) {
+        if (posting.idempotentRequest() == null) {
+            return;
+        }
+        try {
+            idempotencyService.release(posting.idempotentRequest().key(), posting.ticketId());
+        } catch (RuntimeException e) {
+            log.warn("Could not release idempotency key {}: {}", posting.idempotentRequest().key(), e.getMessage());
+        }
+    }
+
+    public record IdempotentRequest(String key, String operation, String requestHash) {
+    }
+
+    private record PendingPosting(String ticketId, PostingInstruction instruction, IdempotentRequest idempotentRequest,
+                                  LocalDateTime submittedAt, CompletableFuture<PostingItemResultDTO> future) {
+    }
+}
\ No newline at end of file
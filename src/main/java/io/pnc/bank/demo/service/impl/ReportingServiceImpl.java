@@ -1,30 +1,73 @@
 package io.pnc.bank.demo.service.impl;
 
+import io.pnc.bank.demo.archive.TransactionArchive;
+import io.pnc.bank.demo.dto.BalanceAsOfDTO;
+import io.pnc.bank.demo.dto.TransactionDTO;
+import io.pnc.bank.demo.dto.TransactionReportRow;
+import io.pnc.bank.demo.dto.TransactionTypeTotal;
+import io.pnc.bank.demo.model.Account;
 import io.pnc.bank.demo.model.AccountStatus;
 import io.pnc.bank.demo.model.TransactionType;
+import io.pnc.bank.demo.monitoring.BankMetrics;
 import io.pnc.bank.demo.repository.AccountRepository;
 import io.pnc.bank.demo.repository.TransactionRepository;
+import io.pnc.bank.demo.service.BalanceCheckpointService;
+import io.pnc.bank.demo.service.DailyRollupService;
 import io.pnc.bank.demo.service.ReportingService;
-import lombok.RequiredArgsConstructor;
+import io.pnc.bank.demo.util.CountingOutputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ReportingServiceImpl implements ReportingService {
 
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
+    private final DailyRollupService dailyRollupService;
+    private final TransactionArchive transactionArchive;
+    private final BalanceCheckpointService balanceCheckpointService;
+    private final BankMetrics bankMetrics;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    public ReportingServiceImpl(AccountRepository accountRepository,
+                                TransactionRepository transactionRepository,
+                                DailyRollupService dailyRollupService,
+                                TransactionArchive transactionArchive,
+                                BalanceCheckpointService balanceCheckpointService,
+                                BankMetrics bankMetrics,
+                                PlatformTransactionManager transactionManager) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.dailyRollupService = dailyRollupService;
+        this.transactionArchive = transactionArchive;
+        this.balanceCheckpointService = balanceCheckpointService;
+        this.bankMetrics = bankMetrics;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
 
     // Run daily at midnight
     @Scheduled(cron = "0 0 0 * * ?") 
@@ -33,19 +76,47 @@ public class ReportingServiceImpl implements ReportingService {
         log.info("Generating daily transaction report");
         
         LocalDate yesterday = LocalDate.now().minusDays(1);
-        byte[] reportData = generateTransactionReport(yesterday, yesterday, "csv");
         
         // In a real application, this could:
         // - Save to a database
         // - Email to stakeholders
         // - Upload to a file system
         // - Push to a document management system
+        // A self-call bypasses the @Transactional proxy, and the report's cursor needs a transaction
+        CountingOutputStream reportData = new CountingOutputStream(OutputStream.nullOutputStream());
+        boolean written = Boolean.TRUE.equals(readOnlyTransactionTemplate.execute(status -> {
+            try {
+                writeTransactionReport(yesterday, yesterday, "csv", reportData);
+                return true;
+            } catch (IOException e) {
+                log.error("Daily report generation failed", e);
+                return false;
+            }
+        }));
+        if (!written) {
+            return;
+        }
         
-        log.info("Daily report generated successfully, size: {} bytes", reportData.length);
+        log.info("Daily report generated successfully, size: {} bytes", reportData.getCount());
     }
 
     @Override
-    public byte[] generateTransactionReport(LocalDate startDate, LocalDate endDate, String format) {
+    @Transactional(readOnly = true)
+    public void writeTransactionReport(LocalDate startDate, LocalDate endDate, String format, OutputStream outputStream) throws IOException {
+        CountingOutputStream counted = new CountingOutputStream(outputStream);
+        long[] rows = {0};
+        long started = System.nanoTime();
+        boolean completed = false;
+        try {
+            writeTransactionReport(startDate, endDate, format, counted, rows);
+            completed = true;
+        } finally {
+            bankMetrics.reportWritten("transactions", System.nanoTime() - started, rows[0], counted.getCount(), completed);
+        }
+    }
+
+    private void writeTransactionReport(LocalDate startDate, LocalDate endDate, String format,
+                                        OutputStream outputStream, long[] rows) throws IOException {
         log.info("Generating transaction report from {} to {} in {} format", startDate, endDate, format);
         
         LocalDateTime startDateTime = startDate.atStartOfDay();
@@ -53,47 +124,146 @@ public class ReportingServiceImpl implements ReportingService {
         
         // Get account statistics
         long totalAccounts = accountRepository.count();
-        long activeAccounts = accountRepository.findByStatus(AccountStatus.ACTIVE).size();
-        
-        // Get transaction statistics
-        BigDecimal totalDeposits = transactionRepository.sumAmountByTypeAndDateBetween(
-                TransactionType.DEPOSIT, startDateTime, endDateTime);
-        if (totalDeposits == null) totalDeposits = BigDecimal.ZERO;
+        long activeAccounts = accountRepository.countByStatus(AccountStatus.ACTIVE);
         
-        BigDecimal totalWithdrawals = transactionRepository.sumAmountByTypeAndDateBetween(
-                TransactionType.WITHDRAWAL, startDateTime, endDateTime);
-        if (totalWithdrawals == null) totalWithdrawals = BigDecimal.ZERO;
-        
-        BigDecimal totalTransfersIn = transactionRepository.sumAmountByTypeAndDateBetween(
-                TransactionType.TRANSFER_IN, startDateTime, endDateTime);
-        if (totalTransfersIn == null) totalTransfersIn = BigDecimal.ZERO;
-        
-        BigDecimal totalTransfersOut = transactionRepository.sumAmountByTypeAndDateBetween(
-                TransactionType.TRANSFER_OUT, startDateTime, endDateTime);
-        if (totalTransfersOut == null) totalTransfersOut = BigDecimal.ZERO;
+        // Get transaction statistics for all types from the daily rollups (a few rows per day)
+        Map<TransactionType, BigDecimal> totals = dailyRollupService.getTotalsByType(startDate, endDate);
         
         // Format as CSV
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        StringBuilder reportBuilder = new StringBuilder();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        
+        writer.append("PNC Bank Transaction Report\n");
+        writer.append("Report Period: ").append(String.valueOf(startDate)).append(" to ").append(String.valueOf(endDate)).append("\n");
+        writer.append("Generated on: ").append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append("\n\n");
         
-        reportBuilder.append("PNC Bank Transaction Report\n");
-        reportBuilder.append("Report Period: ").append(startDate).append(" to ").append(endDate).append("\n");
-        reportBuilder.append("Generated on: ").append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append("\n\n");
+        writer.append("Account Statistics\n");
+        writer.append("Total Accounts,").append(String.valueOf(totalAccounts)).append("\n");
+        writer.append("Active Accounts,").append(String.valueOf(activeAccounts)).append("\n\n");
         
-        reportBuilder.append("Account Statistics\n");
-        reportBuilder.append("Total Accounts,").append(totalAccounts).append("\n");
-        reportBuilder.append("Active Accounts,").append(activeAccounts).append("\n\n");
+        writer.append("Transaction Statistics\n");
+        for (Map.Entry<TransactionType, BigDecimal> total : totals.entrySet()) {
+            writer.append("Total ").append(total.getKey().getDisplayName()).append(',')
+                    .append(String.valueOf(total.getValue())).append("\n");
+        }
+        writer.append("Net Movement,").append(String.valueOf(TransactionTypeTotal.netMovement(totals))).append("\n\n");
         
-        reportBuilder.append("Transaction Statistics\n");
-        reportBuilder.append("Total Deposits,").append(totalDeposits).append("\n");
-        reportBuilder.append("Total Withdrawals,").append(totalWithdrawals).append("\n");
-        reportBuilder.append("Total Transfers In,").append(totalTransfersIn).append("\n");
-        reportBuilder.append("Total Transfers Out,").append(totalTransfersOut).append("\n");
-        reportBuilder.append("Net Movement,").append(totalDeposits.add(totalTransfersIn).subtract(totalWithdrawals).subtract(totalTransfersOut)).append("\n");
+        // Send the header right away; line items follow as the cursor advances
+        writer.append("Transactions\n");
+        writer.append("Transaction ID,Date,Account Number,Type,Amount,Running Balance,Reference ID,Description\n");
+        writer.flush();
+        Map<String, BigDecimal> shardedBalances = shardedOpeningBalances(startDate);
         
         // In a real implementation, we would implement PDF generation for the pdf format option
         // For now, just return the same content for all formats
+        // Archived rows come first, then hot rows, all in (date, id) order
+        LocalDateTime hotFrom = startDateTime;
+        LocalDateTime horizon = transactionArchive.getHorizon();
+        if (horizon != null && startDateTime.isBefore(horizon)) {
+            transactionArchive.scanInDateOrder(startDateTime, endDate.plusDays(1).atStartOfDay(), row -> {
+                writeRow(writer, toReportRow(row), shardedBalances);
+                rows[0]++;
+            });
+            hotFrom = horizon;
+        }
+        if (!hotFrom.isAfter(endDateTime)) {
+            try (Stream<TransactionReportRow> reportRows = transactionRepository.streamReportRowsByDateBetween(hotFrom, endDateTime)) {
+                Iterator<TransactionReportRow> iterator = reportRows.iterator();
+                while (iterator.hasNext()) {
+                    writeRow(writer, iterator.next(), shardedBalances);
+                    rows[0]++;
+                }
+            }
+        }
+        writer.flush();
         
-        return reportBuilder.toString().getBytes(StandardCharsets.UTF_8);
+        log.info("Transaction report from {} to {} completed with {} line items", startDate, endDate, rows[0]);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void writeAccountStatement(BalanceAsOfDTO opening, LocalDate endDate, OutputStream outputStream) throws IOException {
+        LocalDate startDate = opening.getAsOf().plusDays(1);
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before the start date");
+        }
+
+        CountingOutputStream counted = new CountingOutputStream(outputStream);
+        long lines = 0;
+        long started = System.nanoTime();
+        boolean completed = false;
+        try {
+            lines = writeAccountStatement(opening, startDate, endDate, counted);
+            completed = true;
+        } finally {
+            bankMetrics.reportWritten("statement", System.nanoTime() - started, lines, counted.getCount(), completed);
+        }
+    }
+
+    private long writeAccountStatement(BalanceAsOfDTO opening, LocalDate startDate, LocalDate endDate,
+                                       OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        AccountStatementWriter statement = new AccountStatementWriter(writer, opening.getAccountNumber(),
+                startDate, endDate, opening.getBalance());
+        writer.flush();
+
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+        LocalDateTime horizon = transactionArchive.getHorizon();
+        if (horizon != null && from.isBefore(horizon)) {
+            transactionArchive.scanAccount(opening.getAccountId(), from, to, row -> statement.line(toReportRow(row)));
+            from = horizon;
+        }
+        if (from.isBefore(to)) {
+            try (Stream<TransactionReportRow> statementRows = transactionRepository.streamStatementRowsByAccountId(
+                    opening.getAccountId(), from, to)) {
+                Iterator<TransactionReportRow> iterator = statementRows.iterator();
+                while (iterator.hasNext()) {
+                    statement.line(iterator.next());
+                }
+            }
+        }
+        statement.finish();
+
+        log.info("Statement for account {} from {} to {} completed with {} lines (opening from checkpoint {})",
+                opening.getAccountNumber(), startDate, endDate, statement.getLines(), opening.getCheckpointDate());
+        return statement.getLines();
+    }
+
+    private static TransactionReportRow toReportRow(TransactionDTO row) {
+        return new TransactionReportRow(row.getId(), row.getTransactionDate(), row.getAccountNumber(),
+                row.getTransactionType(), row.getAmount(), row.getBalanceAfterTransaction(),
+                row.getReferenceId(), row.getDescription());
+    }
+
+    // Credits to accounts with balance buckets are stored without a running balance. For those
+    // accounts it is rolled forward from the opening balance, as the statement does, and taken
+    // from the row wherever one is stored. Accounts that have since left balance buckets keep
+    // the gap.
+    private Map<String, BigDecimal> shardedOpeningBalances(LocalDate startDate) {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        for (Account account : accountRepository.findByAccountNumberIn(accountRepository.findAccountNumbersWithBalanceBuckets())) {
+            balances.put(account.getAccountNumber(),
+                    balanceCheckpointService.getBalanceAsOf(account.getId(), startDate.minusDays(1)).getBalance());
+        }
+        return balances;
+    }
+
+    private void writeRow(Writer writer, TransactionReportRow row, Map<String, BigDecimal> shardedBalances) throws IOException {
+        BigDecimal balance = row.getBalanceAfterTransaction();
+        BigDecimal previous = shardedBalances.get(row.getAccountNumber());
+        if (previous != null) {
+            if (balance == null) {
+                balance = row.getTransactionType().isCredit() ? previous.add(row.getAmount()) : previous.subtract(row.getAmount());
+            }
+            shardedBalances.put(row.getAccountNumber(), balance);
+        }
+        writer.append(String.valueOf(row.getId())).append(',')
+                .append(row.getTransactionDate().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append(',')
+                .append(row.getAccountNumber()).append(',')
+                .append(row.getTransactionType().name()).append(',')
+                .append(row.getAmount().toPlainString()).append(',')
+                .append(balance != null ? balance.toPlainString() : "").append(',')
+                .append(AccountStatementWriter.csvValue(row.getReferenceId())).append(',')
+                .append(AccountStatementWriter.csvValue(row.getDescription())).append('\n');
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
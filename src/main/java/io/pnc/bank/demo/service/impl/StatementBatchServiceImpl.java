@@ -0,0 +1,275 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.archive.TransactionArchive;
+import io.pnc.bank.demo.dto.StatementRunDTO;
+import io.pnc.bank.demo.dto.TransactionReportRow;
+import io.pnc.bank.demo.model.AccountBalanceCheckpoint;
+import io.pnc.bank.demo.repository.AccountBalanceCheckpointRepository;
+import io.pnc.bank.demo.repository.AccountRepository;
+import io.pnc.bank.demo.repository.TransactionRepository;
+import io.pnc.bank.demo.service.BalanceCheckpointService;
+import io.pnc.bank.demo.service.StatementBatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Month-end statements for every account. Accounts are split into id ranges of
+// bank.statement.batch.partition-size, and bank.statement.batch.workers partitions run at once,
+// each with one read-only transaction and one connection. A partition reads its opening balances
+// from the previous month-end checkpoint and streams the month's transactions for all of its
+// accounts in a single query. Files go to <output-dir>/<yyyy-MM>/<id range>/<account number>.csv;
+// a partition is marked complete only once all of its files are written, so a failed or
+// interrupted run can be repeated and picks up where it stopped.
+@Service
+@Slf4j
+public class StatementBatchServiceImpl implements StatementBatchService {
+
+    private static final String COMPLETED_MARKER = "_COMPLETED";
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountBalanceCheckpointRepository checkpointRepository;
+    private final BalanceCheckpointService balanceCheckpointService;
+    private final TransactionArchive transactionArchive;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Path outputDirectory;
+    private final int partitionSize;
+    private final int workers;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StatementBatchServiceImpl(AccountRepository accountRepository,
+                                     TransactionRepository transactionRepository,
+                                     AccountBalanceCheckpointRepository checkpointRepository,
+                                     BalanceCheckpointService balanceCheckpointService,
+                                     TransactionArchive transactionArchive,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${bank.statement.batch.output-dir:statements}") Path outputDirectory,
+                                     @Value("${bank.statement.batch.partition-size:5000}") int partitionSize,
+                                     @Value("${bank.statement.batch.workers:4}") int workers) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.balanceCheckpointService = balanceCheckpointService;
+        this.transactionArchive = transactionArchive;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.outputDirectory = outputDirectory;
+        this.partitionSize = partitionSize;
+        this.workers = workers;
+    }
+
+    // After the month's last balance checkpoint has been written
+    @Scheduled(cron = "${bank.statement.batch.cron:0 0 1 1 * ?}")
+    public void generatePreviousMonth() {
+        generateMonthEndStatements(YearMonth.now().minusMonths(1));
+    }
+
+    @Override
+    public StatementRunDTO generateMonthEndStatements(YearMonth month) {
+        if (!month.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Only months that have ended can be run");
+        }
+        LocalDateTime horizon = transactionArchive.getHorizon();
+        if (horizon != null && month.atDay(1).atStartOfDay().isBefore(horizon)) {
+            throw new IllegalArgumentException("Transactions for " + month + " have been archived");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A statement run is already in progress");
+        }
+        try {
+            return run(month);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private StatementRunDTO run(YearMonth month) {
+        long started = System.nanoTime();
+        // Fills in opening balances the nightly job missed; existing checkpoints are left alone
+        LocalDate openingDate = month.minusMonths(1).atEndOfMonth();
+        balanceCheckpointService.createCheckpoints(openingDate);
+
+        Path monthDirectory = outputDirectory.resolve(month.toString());
+        Long maxAccountId = checkpointRepository.findMaxAccountId();
+        List<Long> partitions = new ArrayList<>();
+        for (long afterId = 0; maxAccountId != null && afterId < maxAccountId; afterId += partitionSize) {
+            partitions.add(afterId);
+        }
+        log.info("Generating {} statements into {}: {} partitions on {} workers",
+                month, monthDirectory.toAbsolutePath(), partitions.size(), workers);
+
+        AtomicInteger partitionsDone = new AtomicInteger();
+        List<PartitionResult> results = new ArrayList<>(partitions.size());
+        int failed = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<PartitionResult>> futures = new ArrayList<>(partitions.size());
+            for (long afterId : partitions) {
+                futures.add(executor.submit(() -> {
+                    PartitionResult result = runPartition(month, openingDate, monthDirectory, afterId);
+                    int done = partitionsDone.incrementAndGet();
+                    if (done % 100 == 0) {
+                        log.info("{} statements: {} of {} partitions done", month, done, partitions.size());
+                    }
+                    return result;
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException ex) {
+                    failed++;
+                    log.error("{} statements: partition after account id {} failed", month, partitions.get(i), ex.getCause());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Statement run for " + month + " was interrupted", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        StatementRunDTO run = StatementRunDTO.builder()
+                .month(month)
+                .outputDirectory(monthDirectory.toAbsolutePath().toString())
+                .partitions(partitions.size())
+                .partitionsSkipped((int) results.stream().filter(PartitionResult::skipped).count())
+                .partitionsFailed(failed)
+                .statements(results.stream().mapToLong(PartitionResult::statements).sum())
+                .lines(results.stream().mapToLong(PartitionResult::lines).sum())
+                .durationMillis(Duration.ofNanos(System.nanoTime() - started).toMillis())
+                .build();
+        log.info("{} statements completed: {} statements with {} lines in {} ms ({} partitions skipped, {} failed)",
+                month, run.getStatements(), run.getLines(), run.getDurationMillis(),
+                run.getPartitionsSkipped(), run.getPartitionsFailed());
+        return run;
+    }
+
+    private PartitionResult runPartition(YearMonth month, LocalDate openingDate, Path monthDirectory, long afterId)
+            throws IOException {
+        long upToId = afterId + partitionSize;
+        Path directory = monthDirectory.resolve(String.format("%010d-%010d", afterId + 1, upToId));
+        Path marker = directory.resolve(COMPLETED_MARKER);
+        if (Files.exists(marker)) {
+            return new PartitionResult(true, 0, 0);
+        }
+
+        Files.createDirectories(directory);
+        PartitionResult result = readOnlyTransactionTemplate.execute(status -> {
+            try {
+                return writePartition(month, openingDate, directory, afterId, upToId);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        Files.writeString(marker, result.statements() + " statements, " + result.lines() + " lines\n");
+        return result;
+    }
+
+    // Transactions arrive grouped by account in id order, the same order as the accounts, so
+    // the two are merged; accounts without activity get a statement with no lines. Transactions
+    // of an account left out of the list (created on or after the month end) are skipped.
+    private PartitionResult writePartition(YearMonth month, LocalDate openingDate, Path directory,
+                                           long afterId, long upToId) throws IOException {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        List<Object[]> accounts = accountRepository.findStatementAccountsByIdRange(afterId, upToId, to);
+        // Accounts opened during the month have no checkpoint and start from zero
+        Map<Long, BigDecimal> openingBalances = checkpointRepository
+                .findByCheckpointDateAndAccountIdRange(openingDate, afterId, upToId).stream()
+                .collect(Collectors.toMap(AccountBalanceCheckpoint::getAccountId, AccountBalanceCheckpoint::getBalance));
+        Set<String> listed = accounts.stream().map(account -> (String) account[1]).collect(Collectors.toSet());
+
+        int next = 0;
+        long lines = 0;
+        try (Stream<TransactionReportRow> rows = transactionRepository.streamStatementRowsByAccountIdRange(
+                afterId, upToId, from, to)) {
+            Iterator<TransactionReportRow> iterator = rows.iterator();
+            Writer writer = null;
+            AccountStatementWriter statement = null;
+            String accountNumber = null;
+            String skipped = null;
+            try {
+                while (iterator.hasNext()) {
+                    TransactionReportRow row = iterator.next();
+                    if (!listed.contains(row.getAccountNumber())) {
+                        if (!row.getAccountNumber().equals(skipped)) {
+                            skipped = row.getAccountNumber();
+                            log.warn("{} statements: skipping transactions of account {}, created on or after {}",
+                                    month, skipped, to.toLocalDate());
+                        }
+                        continue;
+                    }
+                    if (!row.getAccountNumber().equals(accountNumber)) {
+                        if (statement != null) {
+                            statement.finish();
+                            writer.close();
+                            lines += statement.getLines();
+                        }
+                        while (!accounts.get(next)[1].equals(row.getAccountNumber())) {
+                            writeEmptyStatement(directory, accounts.get(next++), month, openingBalances);
+                        }
+                        accountNumber = row.getAccountNumber();
+                        writer = Files.newBufferedWriter(directory.resolve(accountNumber + ".csv"), StandardCharsets.UTF_8);
+                        statement = new AccountStatementWriter(writer, accountNumber, month.atDay(1), month.atEndOfMonth(),
+                                openingBalances.getOrDefault((Long) accounts.get(next++)[0], BigDecimal.ZERO));
+                    }
+                    statement.line(row);
+                }
+                if (statement != null) {
+                    statement.finish();
+                    lines += statement.getLines();
+                }
+            } finally {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+        while (next < accounts.size()) {
+            writeEmptyStatement(directory, accounts.get(next++), month, openingBalances);
+        }
+        return new PartitionResult(false, accounts.size(), lines);
+    }
+
+    private void writeEmptyStatement(Path directory, Object[] account, YearMonth month,
+                                     Map<Long, BigDecimal> openingBalances) throws IOException {
+        String accountNumber = (String) account[1];
+        try (Writer writer = Files.newBufferedWriter(directory.resolve(accountNumber + ".csv"), StandardCharsets.UTF_8)) {
+            new AccountStatementWriter(writer, accountNumber, month.atDay(1), month.atEndOfMonth(),
+                    openingBalances.getOrDefault((Long) account[0], BigDecimal.ZERO)).finish();
+        }
+    }
+
+    private record PartitionResult(boolean skipped, int statements, long lines) {
+    }
+}
\ No newline at end of file
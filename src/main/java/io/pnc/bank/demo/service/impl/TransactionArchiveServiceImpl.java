@@ -0,0 +1,186 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.archive.TransactionArchive;
+import io.pnc.bank.demo.dto.ArchiveRunDTO;
+import io.pnc.bank.demo.dto.TransactionDTO;
+import io.pnc.bank.demo.repository.IdempotencyKeyRepository;
+import io.pnc.bank.demo.repository.TransactionRepository;
+import io.pnc.bank.demo.service.TransactionArchiveService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+// Moves whole months of transactions older than bank.archive.hot-months (counting the current
+// month) into the TransactionArchive, oldest first. For each month the segment is written and
+// published with the new horizon before any row is deleted, so a run that stops part way never
+// loses rows; rows it leaves below the horizon are ignored by readers and deleted by the next run.
+// When transactions is partitioned by month, an archived month's partition is detached in one
+// statement instead (see TransactionPartitionMaintenance); only what it could not detach, or all of
+// it on an unpartitioned table, is deleted in chunks.
+@Service
+@Slf4j
+public class TransactionArchiveServiceImpl implements TransactionArchiveService {
+
+    private final TransactionArchive archive;
+    private final TransactionRepository transactionRepository;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Optional<TransactionPartitionMaintenance> partitionMaintenance;
+    private final boolean enabled;
+    private final int hotMonths;
+    private final int deleteChunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public TransactionArchiveServiceImpl(TransactionArchive archive,
+                                         TransactionRepository transactionRepository,
+                                         IdempotencyKeyRepository idempotencyKeyRepository,
+                                         PlatformTransactionManager transactionManager,
+                                         Optional<TransactionPartitionMaintenance> partitionMaintenance,
+                                         @Value("${bank.archive.enabled:false}") boolean enabled,
+                                         @Value("${bank.archive.hot-months:13}") int hotMonths,
+                                         @Value("${bank.archive.delete-chunk-size:5000}") int deleteChunkSize) {
+        // Month-end statements and rollup repairs of the previous month need it in the hot table
+        if (hotMonths < 2) {
+            throw new IllegalArgumentException("bank.archive.hot-months must be at least 2");
+        }
+        this.archive = archive;
+        this.transactionRepository = transactionRepository;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.partitionMaintenance = partitionMaintenance;
+        this.enabled = enabled;
+        this.hotMonths = hotMonths;
+        this.deleteChunkSize = deleteChunkSize;
+    }
+
+    @Scheduled(cron = "${bank.archive.cron:0 0 3 * * ?}")
+    public void archiveOnSchedule() {
+        if (enabled) {
+            archiveExpiredMonths();
+        }
+    }
+
+    @Override
+    public ArchiveRunDTO archiveExpiredMonths() {
+        if (!enabled) {
+            throw new IllegalStateException("The transaction archive is disabled (bank.archive.enabled)");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An archive run is already in progress");
+        }
+        try {
+            return run();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Archive run failed", ex);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ArchiveRunDTO run() throws IOException {
+        long started = System.nanoTime();
+        YearMonth firstHotMonth = YearMonth.now().minusMonths(hotMonths - 1);
+
+        LocalDateTime horizon = archive.getHorizon();
+        List<YearMonth> detached = new ArrayList<>();
+        long deleted = horizon != null ? removeBefore(horizon, detached) : 0;
+
+        YearMonth month;
+        if (horizon != null) {
+            month = YearMonth.from(horizon);
+        } else {
+            LocalDateTime earliest = transactionRepository.findEarliestTransactionDate();
+            month = earliest != null ? YearMonth.from(earliest) : firstHotMonth;
+        }
+
+        List<YearMonth> archived = new ArrayList<>();
+        long rows = 0;
+        for (; month.isBefore(firstHotMonth); month = month.plusMonths(1)) {
+            TransactionArchive.Segment segment = writeSegment(month);
+            LocalDate nextHorizon = month.plusMonths(1).atDay(1);
+            archive.commit(segment != null ? List.of(segment) : List.of(), nextHorizon);
+            long monthRows = segment != null ? segment.rows() : 0;
+            deleted += removeBefore(nextHorizon.atStartOfDay(), detached);
+            archived.add(month);
+            rows += monthRows;
+            log.info("Archived {} transactions for {} ({} bytes)", monthRows, month, segment != null ? segment.bytes() : 0);
+        }
+
+        LocalDateTime newHorizon = archive.getHorizon();
+        return ArchiveRunDTO.builder()
+                .horizon(newHorizon != null ? newHorizon.toLocalDate() : null)
+                .monthsArchived(archived)
+                .rowsArchived(rows)
+                .rowsDeleted(deleted)
+                .partitionsDetached(detached)
+                .durationMillis(Duration.ofNanos(System.nanoTime() - started).toMillis())
+                .build();
+    }
+
+    // Null for a month without transactions; it still moves the horizon
+    private TransactionArchive.Segment writeSegment(YearMonth month) throws IOException {
+        try (TransactionArchive.SegmentWriter writer = archive.openSegment(month)) {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<TransactionDTO> rows = transactionRepository.streamArchiveRows(
+                        month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay())) {
+                    Iterator<TransactionDTO> iterator = rows.iterator();
+                    while (iterator.hasNext()) {
+                        writer.append(iterator.next());
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                try (Stream<Object[]> ids = transactionRepository.streamArchiveIds(
+                        month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay())) {
+                    Iterator<Object[]> iterator = ids.iterator();
+                    while (iterator.hasNext()) {
+                        Object[] id = iterator.next();
+                        writer.appendId((Long) id[0], (Long) id[1]);
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            return writer.getRows() > 0 ? writer.finish() : null;
+        }
+    }
+
+    // Detaches the archived months' partitions, then deletes whatever is still dated before the horizon
+    private long removeBefore(LocalDateTime before, List<YearMonth> detached) {
+        partitionMaintenance.ifPresent(maintenance -> detached.addAll(maintenance.detachArchivedMonths()));
+        return deleteBefore(before);
+    }
+
+    // Idempotency keys expire within a day, long before their transaction is archived; any left
+    // would block the delete on databases that still enforce the foreign key
+    private long deleteBefore(LocalDateTime before) {
+        transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepository.deleteByCreatedAtBefore(before));
+        long deleted = 0;
+        Integer chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> transactionRepository.deleteChunkDatedBefore(before, deleteChunkSize));
+            deleted += chunk != null ? chunk : 0;
+        } while (chunk != null && chunk > 0);
+        return deleted;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,179 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.archive.TransactionArchive;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Keeps the monthly partitions of transactions (PostgreSQL only, once converted with
+// db/offline/postgresql/partition_transactions_by_month.sql) bank.transactions.partitioning.months-ahead
+// months ahead of the calendar, since there is no default partition to catch rows past the last
+// one. Months older than detach-after-months are
+// detached concurrently and moved to the archive schema, out of the live table's vacuum and
+// indexes. Nothing in the application reads that schema, so a month is only detached once it lies
+// wholly before the TransactionArchive horizon, where history, reports, exports and statements
+// read it from the archive instead; the detached table is just a spare copy a DBA may drop.
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "bank.transactions.partitioning.enabled", havingValue = "true")
+public class TransactionPartitionMaintenance {
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'transactions_y'yyyy'm'MM");
+
+    // Partitions of transactions in the current schema; detachPending marks an interrupted concurrent detach
+    private static final String PARTITIONS_SQL = "SELECT c.relname, i.inhdetachpending FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'transactions' AND p.relnamespace = current_schema()::regnamespace";
+
+    private static final String PARTITIONED_SQL = "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt " +
+            "JOIN pg_class c ON c.oid = pt.partrelid " +
+            "WHERE c.relname = 'transactions' AND c.relnamespace = current_schema()::regnamespace)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionArchive archive;
+    private final int monthsAhead;
+    private final int detachAfterMonths;
+    private final String archiveSchema;
+
+    public TransactionPartitionMaintenance(DataSource dataSource,
+                                           PlatformTransactionManager transactionManager,
+                                           TransactionArchive archive,
+                                           @Value("${bank.transactions.partitioning.months-ahead:3}") int monthsAhead,
+                                           @Value("${bank.transactions.partitioning.detach-after-months:0}") int detachAfterMonths,
+                                           @Value("${bank.transactions.partitioning.archive-schema:transactions_archive}") String archiveSchema,
+                                           @Value("${bank.archive.enabled:false}") boolean archiveEnabled,
+                                           @Value("${bank.archive.hot-months:13}") int hotMonths) {
+        // A detached month is only readable through the archive, so it must have been archived first
+        if (detachAfterMonths > 0 && !archiveEnabled) {
+            throw new IllegalArgumentException("bank.transactions.partitioning.detach-after-months needs bank.archive.enabled");
+        }
+        if (detachAfterMonths > 0 && detachAfterMonths < hotMonths) {
+            throw new IllegalArgumentException("bank.transactions.partitioning.detach-after-months must be at least bank.archive.hot-months");
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archive = archive;
+        this.monthsAhead = monthsAhead;
+        this.detachAfterMonths = detachAfterMonths;
+        this.archiveSchema = archiveSchema;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${bank.transactions.partitioning.cron:0 30 1 * * ?}")
+    public void maintain() {
+        if (!isPartitioned()) {
+            log.warn("transactions is not partitioned yet (db/offline/postgresql/partition_transactions_by_month.sql), skipping partition maintenance");
+            return;
+        }
+        Map<YearMonth, Boolean> partitions = findPartitions();
+        YearMonth current = YearMonth.now();
+        for (YearMonth month = current; !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            if (!partitions.containsKey(month)) {
+                createPartition(month);
+            }
+        }
+
+        if (detachAfterMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(detachAfterMonths);
+            partitions.forEach((month, detachPending) -> {
+                if (month.isBefore(oldestKept)) {
+                    if (isArchived(month)) {
+                        detachPartition(month, detachPending);
+                    } else {
+                        log.warn("Not detaching transactions partition {}: the archive horizon ({}) does not cover it yet",
+                                month.format(PARTITION_NAME), archive.getHorizon());
+                    }
+                }
+            });
+        }
+    }
+
+    // Called by the archive run once it has moved the horizon: every month now wholly in the archive
+    // is detached rather than deleted row by row, whatever detach-after-months says
+    public List<YearMonth> detachArchivedMonths() {
+        List<YearMonth> detached = new ArrayList<>();
+        if (!isPartitioned()) {
+            return detached;
+        }
+        findPartitions().forEach((month, detachPending) -> {
+            if (isArchived(month) && detachPartition(month, detachPending)) {
+                detached.add(month);
+            }
+        });
+        return detached;
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(PARTITIONED_SQL, Boolean.class));
+    }
+
+    private boolean isArchived(YearMonth month) {
+        LocalDateTime horizon = archive.getHorizon();
+        return horizon != null && !month.plusMonths(1).atDay(1).atStartOfDay().isAfter(horizon);
+    }
+
+    private Map<YearMonth, Boolean> findPartitions() {
+        Map<YearMonth, Boolean> partitions = new TreeMap<>();
+        jdbcTemplate.query(PARTITIONS_SQL, rs -> {
+            try {
+                partitions.put(YearMonth.parse(rs.getString(1), PARTITION_NAME), rs.getBoolean(2));
+            } catch (DateTimeParseException ex) {
+                log.warn("Ignoring transactions partition {} that does not follow the monthly naming", rs.getString(1));
+            }
+        });
+        return partitions;
+    }
+
+    // Creating a partition locks the parent table; give up rather than queue postings behind a long query
+    private void createPartition(YearMonth month) {
+        String name = month.format(PARTITION_NAME);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF transactions " +
+                        "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            });
+            log.info("Created transactions partition {}", name);
+        } catch (DataAccessException ex) {
+            log.error("Could not create transactions partition {}, will retry on the next run: {}", name, ex.getMessage());
+        }
+    }
+
+    // DETACH ... CONCURRENTLY cannot run inside a transaction block, so these run in autocommit mode
+    private boolean detachPartition(YearMonth month, boolean detachPending) {
+        String name = month.format(PARTITION_NAME);
+        try {
+            if (detachPending) {
+                jdbcTemplate.execute("ALTER TABLE transactions DETACH PARTITION " + name + " FINALIZE");
+            } else {
+                jdbcTemplate.execute("ALTER TABLE transactions DETACH PARTITION " + name + " CONCURRENTLY");
+            }
+            jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+            jdbcTemplate.execute("ALTER TABLE " + name + " SET SCHEMA " + archiveSchema);
+            log.info("Detached transactions partition {} into schema {}", name, archiveSchema);
+            return true;
+        } catch (DataAccessException ex) {
+            log.error("Could not detach transactions partition {}, will retry on the next run: {}", name, ex.getMessage());
+            return false;
+        }
+    }
+}
\ No newline at end of file
@@ -1,10 +1,22 @@
 package io.pnc.bank.demo.service.impl;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.pnc.bank.demo.archive.TransactionArchive;
+import io.pnc.bank.demo.cache.AccountIndex;
+import io.pnc.bank.demo.cache.AccountLookupCache;
+import io.pnc.bank.demo.dto.BatchPostingRequest;
+import io.pnc.bank.demo.dto.BatchPostingResultDTO;
+import io.pnc.bank.demo.dto.CursorPage;
 import io.pnc.bank.demo.dto.DepositRequest;
+import io.pnc.bank.demo.dto.PostingInstruction;
+import io.pnc.bank.demo.dto.PostingItemResultDTO;
+import io.pnc.bank.demo.dto.PostingTicketDTO;
 import io.pnc.bank.demo.dto.TransactionDTO;
 import io.pnc.bank.demo.dto.TransferRequest;
 import io.pnc.bank.demo.dto.WithdrawalRequest;
-import io.pnc.bank.demo.exception.InsufficientBalanceException;
 import io.pnc.bank.demo.exception.ResourceNotFoundException;
 import io.pnc.bank.demo.mapper.TransactionMapper;
 import io.pnc.bank.demo.model.Account;
@@ -13,23 +25,38 @@ import io.pnc.bank.demo.model.Transaction;
 import io.pnc.bank.demo.model.TransactionType;
 import io.pnc.bank.demo.repository.AccountRepository;
 import io.pnc.bank.demo.repository.TransactionRepository;
+import io.pnc.bank.demo.service.DailyRollupService;
+import io.pnc.bank.demo.service.IdempotencyService;
 import io.pnc.bank.demo.service.TransactionService;
+import io.pnc.bank.demo.util.TransactionCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
@@ -38,209 +65,493 @@ public class TransactionServiceImpl implements TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
+    private final AccountLookupCache accountLookupCache;
+    private final AccountIndex accountIndex;
     private final TransactionMapper transactionMapper;
+    private final AccountLockingEngine lockingEngine;
+    private final LedgerPoster ledgerPoster;
+    private final DailyRollupService dailyRollupService;
+    private final IdempotencyService idempotencyService;
+    private final BalanceBucketLedger balanceBucketLedger;
+    private final PostingPipeline postingPipeline;
+    private final TransactionArchive transactionArchive;
+    private final ObjectMapper objectMapper;
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("transactionDate"), Sort.Order.desc("id"));
+
+    @Value("${bank.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    @Value("${bank.batch.max-items:10000}")
+    private int batchMaxItems;
+
+    @Value("${bank.batch.validate-max-items:2000000}")
+    private int batchValidateMaxItems;
+
+    @Value("${bank.batch.validate-chunk-size:10000}")
+    private int batchValidateChunkSize;
+
+    @Value("${bank.history.max-page-size:100}")
+    private int historyMaxPageSize;
 
     @Override
     @Transactional(readOnly = true)
     public Page<TransactionDTO> getTransactionsByAccountId(Long accountId, Pageable pageable) {
-        Page<Transaction> transactions = transactionRepository.findByAccountId(accountId, pageable);
-        return new PageImpl<>(
-                transactionMapper.toDtoList(transactions.getContent()),
-                pageable,
-                transactions.getTotalElements()
-        );
+        pageable = newestFirst(pageable);
+        LocalDateTime horizon = transactionArchive.getHorizon();
+        if (horizon == null) {
+            return transactionRepository.findDtoPageByAccountId(accountId, pageable);
+        }
+
+        // Archived rows are older than every hot row, so they follow the hot ones, newest first
+        Page<TransactionDTO> hot = transactionRepository.findDtoPageByAccountIdFrom(accountId, horizon, pageable);
+        if (pageable.isPaged() && hot.getNumberOfElements() == pageable.getPageSize()) {
+            return new PageImpl<>(hot.getContent(), pageable, hot.getTotalElements() + transactionArchive.countByAccount(accountId));
+        }
+        // The rest of the page comes from the archive, at the same position in newest-first order
+        long skip = pageable.isPaged() ? Math.max(0, pageable.getOffset() - hot.getTotalElements()) : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() - hot.getNumberOfElements() : Integer.MAX_VALUE;
+        List<TransactionDTO> content = new ArrayList<>(hot.getContent());
+        content.addAll(transactionArchive.findLatestByAccount(accountId, horizon, null, skip, limit));
+        return new PageImpl<>(content, pageable, hot.getTotalElements() + transactionArchive.countByAccount(accountId));
+    }
+
+    // Pages run newest first across the hot table and the archive; archived rows cannot be merged
+    // in any other order, so other sorts are rejected rather than returned half sorted
+    private static Pageable newestFirst(Pageable pageable) {
+        Sort sort = pageable.getSort();
+        if (sort.isSorted() && !sort.equals(Sort.by(Sort.Order.desc("transactionDate"))) && !sort.equals(NEWEST_FIRST)) {
+            throw new IllegalArgumentException("Transactions can only be sorted by transactionDate,desc");
+        }
+        return pageable.isPaged()
+                ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), NEWEST_FIRST)
+                : Pageable.unpaged(NEWEST_FIRST);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionDTO> getTransactionHistory(Long accountId, String cursor, int size, boolean includeTotal) {
+        if (size < 1 || size > historyMaxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + historyMaxPageSize);
+        }
+        
+        // Fetch one extra row to learn whether another page follows, without counting
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<TransactionDTO> transactions;
+        if (cursor == null || cursor.isBlank()) {
+            transactions = transactionRepository.findHistoryFirstPage(accountId, limit);
+        } else {
+            TransactionCursor position = TransactionCursor.decode(cursor);
+            transactions = transactionRepository.findHistoryAfter(
+                    accountId, position.getTransactionDate(), position.getId(), limit);
+        }
+        
+        // Past the end of the hot rows, continue into the archive
+        LocalDateTime horizon = transactionArchive.getHorizon();
+        if (horizon != null && transactions.size() <= size) {
+            transactions = continueIntoArchive(accountId, transactions, horizon, cursor, size + 1);
+        }
+        
+        boolean hasNext = transactions.size() > size;
+        if (hasNext) {
+            transactions = transactions.subList(0, size);
+        }
+        
+        String nextCursor = null;
+        if (hasNext) {
+            TransactionDTO last = transactions.get(transactions.size() - 1);
+            nextCursor = new TransactionCursor(last.getTransactionDate(), last.getId()).encode();
+        }
+        
+        return CursorPage.<TransactionDTO>builder()
+                .content(transactions)
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .totalElements(includeTotal ? transactionRepository.countByAccountId(accountId)
+                        + transactionArchive.countByAccount(accountId) : null)
+                .build();
+    }
+
+    private List<TransactionDTO> continueIntoArchive(Long accountId, List<TransactionDTO> hot, LocalDateTime horizon,
+                                                     String cursor, int limit) {
+        // Rows below the horizon may still be in the table while an archive run deletes them
+        List<TransactionDTO> result = new ArrayList<>(limit);
+        hot.stream().filter(row -> !row.getTransactionDate().isBefore(horizon)).forEach(result::add);
+
+        // A cursor still in the hot tier continues from the top of the archive
+        TransactionCursor position = cursor == null || cursor.isBlank() ? null : TransactionCursor.decode(cursor);
+        boolean archivedPosition = position != null && position.getTransactionDate().isBefore(horizon);
+        result.addAll(transactionArchive.findLatestByAccount(accountId,
+                archivedPosition ? position.getTransactionDate() : horizon,
+                archivedPosition ? position.getId() : null, 0, limit - result.size()));
+        return result;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<TransactionDTO> getTransactionsByAccountNumber(String accountNumber, Pageable pageable) {
-        Account account = findAccountByAccountNumber(accountNumber);
-        Page<Transaction> transactions = transactionRepository.findByAccount(account, pageable);
-        return new PageImpl<>(
-                transactionMapper.toDtoList(transactions.getContent()),
-                pageable,
-                transactions.getTotalElements()
-        );
+        // Resolved to the id so the page reads through to the archive like the by-id listing
+        Long accountId = accountLookupCache.find(accountNumber)
+                .map(AccountLookupCache.CachedAccount::id)
+                .orElseThrow(() -> new ResourceNotFoundException("Account not found with account number: " + accountNumber));
+        return getTransactionsByAccountId(accountId, pageable);
     }
 
     @Override
     @Transactional(readOnly = true)
     public TransactionDTO getTransactionById(Long transactionId) {
-        Transaction transaction = transactionRepository.findById(transactionId)
+        return transactionRepository.findDtoById(transactionId)
+                .or(() -> transactionArchive.findById(transactionId))
                 .orElseThrow(() -> new ResourceNotFoundException("Transaction not found with ID: " + transactionId));
-        return transactionMapper.toDto(transaction);
     }
 
     @Override
-    @Transactional
     public TransactionDTO deposit(DepositRequest depositRequest) {
-        Account account = findAccountByAccountNumber(depositRequest.getAccountNumber());
-        
-        // Ensure account is active
-        validateAccountIsActive(account);
-        
-        // Update account balance
-        BigDecimal newBalance = account.getBalance().add(depositRequest.getAmount());
-        account.setBalance(newBalance);
-        account = accountRepository.save(account);
-        
-        // Create transaction record
-        Transaction transaction = Transaction.builder()
-                .account(account)
-                .amount(depositRequest.getAmount())
-                .transactionType(TransactionType.DEPOSIT)
-                .description(depositRequest.getDescription())
-                .transactionDate(LocalDateTime.now())
-                .referenceId(UUID.randomUUID().toString())
-                .balanceAfterTransaction(newBalance)
+        return deposit(depositRequest, null);
+    }
+
+    @Override
+    public TransactionDTO withdraw(WithdrawalRequest withdrawalRequest) {
+        return withdraw(withdrawalRequest, null);
+    }
+
+    @Override
+    public TransactionDTO transfer(TransferRequest transferRequest) {
+        return transfer(transferRequest, null);
+    }
+
+    @Override
+    public TransactionDTO deposit(DepositRequest depositRequest, String idempotencyKey) {
+        return postIdempotently(idempotencyKey, "DEPOSIT",
+                new Object[] {depositRequest.getAccountNumber(), depositRequest.getAmount(), depositRequest.getDescription()},
+                () -> postDeposit(depositRequest));
+    }
+
+    @Override
+    public TransactionDTO withdraw(WithdrawalRequest withdrawalRequest, String idempotencyKey) {
+        return postIdempotently(idempotencyKey, "WITHDRAWAL",
+                new Object[] {withdrawalRequest.getAccountNumber(), withdrawalRequest.getAmount(), withdrawalRequest.getDescription()},
+                () -> postWithdrawal(withdrawalRequest));
+    }
+
+    @Override
+    public TransactionDTO transfer(TransferRequest transferRequest, String idempotencyKey) {
+        return postIdempotently(idempotencyKey, "TRANSFER",
+                new Object[] {transferRequest.getFromAccountNumber(), transferRequest.getToAccountNumber(),
+                        transferRequest.getAmount(), transferRequest.getDescription()},
+                () -> postTransfer(transferRequest));
+    }
+
+    @Override
+    public Map<String, Long> getPostingStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>(lockingEngine.getStatistics());
+        idempotencyService.getStatistics().forEach((name, value) -> statistics.put("idempotency." + name, value));
+        balanceBucketLedger.getStatistics().forEach((name, value) -> statistics.put("balanceBuckets." + name, value));
+        accountLookupCache.getStatistics().forEach((name, value) -> statistics.put("accountCache." + name, value));
+        if (postingPipeline.isEnabled()) {
+            postingPipeline.getStatistics().forEach((name, value) -> statistics.put("pipeline." + name, value));
+        }
+        return statistics;
+    }
+
+    @Override
+    public PostingTicketDTO submitPosting(PostingInstruction instruction, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return postingPipeline.submit(instruction);
+        }
+
+        // Same fingerprint as the in-line path, so a key is honoured whichever way it was first sent
+        String operation = instruction.getOperation().name();
+        String requestHash = idempotencyService.fingerprint(operation, requestFields(instruction));
+        try {
+            return findKeyedTicket(idempotencyKey, requestHash)
+                    .orElseGet(() -> postingPipeline.submit(instruction,
+                            new PostingPipeline.IdempotentRequest(idempotencyKey, operation, requestHash)));
+        } catch (DataIntegrityViolationException ex) {
+            // Lost the reservation to a concurrent request with the same key
+            return findKeyedTicket(idempotencyKey, requestHash).orElseThrow(() -> ex);
+        }
+    }
+
+    @Override
+    public PostingTicketDTO getPostingTicket(String ticketId) {
+        return postingPipeline.getTicket(ticketId)
+                .orElseThrow(() -> new ResourceNotFoundException("Posting ticket not found or expired: " + ticketId));
+    }
+
+    @Override
+    public boolean isAsyncPostingEnabled() {
+        return postingPipeline.isEnabled();
+    }
+
+    @Override
+    public BatchPostingResultDTO postBatch(BatchPostingRequest batchPostingRequest) {
+        List<PostingInstruction> instructions = batchPostingRequest.getInstructions();
+        if (instructions.size() > batchMaxItems) {
+            throw new IllegalArgumentException("A batch cannot contain more than " + batchMaxItems + " instructions");
+        }
+
+        // Each chunk is posted and committed in its own transaction
+        List<PostingItemResultDTO> results = new ArrayList<>(instructions.size());
+        for (int from = 0; from < instructions.size(); from += batchChunkSize) {
+            int firstIndex = from;
+            List<PostingInstruction> chunk = instructions.subList(from, Math.min(from + batchChunkSize, instructions.size()));
+            try {
+                results.addAll(lockingEngine.execute(() -> ledgerPoster.postInstructions(chunk, firstIndex)));
+            } catch (DataAccessException ex) {
+                log.error("Batch chunk starting at item {} failed: {}", firstIndex, ex.getMessage(), ex);
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.add(PostingItemResultDTO.failure(firstIndex + i, "Chunk rolled back: " + ex.getMessage()));
+                }
+            }
+        }
+
+        int succeeded = (int) results.stream().filter(PostingItemResultDTO::isSuccess).count();
+        log.info("Batch of {} instructions processed: {} succeeded, {} failed",
+                instructions.size(), succeeded, instructions.size() - succeeded);
+
+        return BatchPostingResultDTO.builder()
+                .totalItems(instructions.size())
+                .succeeded(succeeded)
+                .failed(instructions.size() - succeeded)
+                .results(results)
                 .build();
+    }
+
+    @Override
+    public BatchPostingResultDTO validateBatch(InputStream body) throws IOException {
+        // The body is parsed as a stream and checked bank.batch.validate-chunk-size instructions at a
+        // time, so a file of millions of lines never sits in memory as a list
+        List<PostingInstruction> chunk = new ArrayList<>(batchValidateChunkSize);
+        List<PostingItemResultDTO> failures = new ArrayList<>();
+        int total = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a JSON object with an instructions array");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_ARRAY || !"instructions".equals(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (++total > batchValidateMaxItems) {
+                        throw new IllegalArgumentException("A batch cannot contain more than " + batchValidateMaxItems + " instructions");
+                    }
+                    chunk.add(objectMapper.readValue(parser, PostingInstruction.class));
+                    if (chunk.size() == batchValidateChunkSize) {
+                        validateChunk(chunk, total - chunk.size(), failures);
+                        chunk.clear();
+                    }
+                }
+            }
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Malformed batch: " + ex.getOriginalMessage());
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("At least one instruction is required");
+        }
+        validateChunk(chunk, total - chunk.size(), failures);
+
+        return BatchPostingResultDTO.builder()
+                .totalItems(total)
+                .succeeded(total - failures.size())
+                .failed(failures.size())
+                .results(failures)
+                .build();
+    }
+
+    private void validateChunk(List<PostingInstruction> chunk, int firstIndex, List<PostingItemResultDTO> failures) {
+        // Numbers the index does not know are looked up once per chunk, in bulk; every line is then checked in memory
+        Set<String> unknown = new HashSet<>();
+        for (PostingInstruction instruction : chunk) {
+            if (instruction != null) {
+                collectUnknown(instruction.getAccountNumber(), unknown);
+                collectUnknown(instruction.getToAccountNumber(), unknown);
+            }
+        }
+        accountIndex.confirm(unknown);
+
+        // Only failures are listed, so the response stays small for large valid files
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                if (chunk.get(i) == null) {
+                    throw new IllegalArgumentException("Instruction is required");
+                }
+                validateAgainstIndex(chunk.get(i));
+            } catch (ResourceNotFoundException | IllegalArgumentException | IllegalStateException ex) {
+                failures.add(PostingItemResultDTO.failure(firstIndex + i, ex.getMessage()));
+            }
+        }
+    }
+
+    private void collectUnknown(String accountNumber, Set<String> unknown) {
+        if (accountNumber != null && accountIndex.find(accountNumber) == null) {
+            unknown.add(accountNumber);
+        }
+    }
+
+    private void validateAgainstIndex(PostingInstruction instruction) {
+        ledgerPoster.validateInstruction(instruction);
+        validateIndexedAccount(instruction.getAccountNumber());
+        if (instruction.getOperation() == PostingInstruction.Operation.TRANSFER) {
+            validateIndexedAccount(instruction.getToAccountNumber());
+        }
+    }
+
+    private void validateIndexedAccount(String accountNumber) {
+        if (accountNumber == null || accountNumber.isBlank()) {
+            throw new IllegalArgumentException("Account number is required");
+        }
+        AccountIndex.Entry account = accountIndex.find(accountNumber);
+        if (account == null) {
+            throw new ResourceNotFoundException("Account not found with account number: " + accountNumber);
+        }
+        ledgerPoster.validateAccountIsActive(accountNumber, account.status());
+    }
+
+    // What an earlier request with this key came to: its committed posting, or the ticket of the
+    // one still queued. A reservation whose ticket failed or is gone (expired, or lost to a
+    // restart) never committed and is released for this request to take.
+    private Optional<PostingTicketDTO> findKeyedTicket(String idempotencyKey, String requestHash) {
+        Optional<TransactionDTO> completed = idempotencyService.findCompleted(idempotencyKey, requestHash);
+        if (completed.isPresent()) {
+            return Optional.of(completedTicket(completed.get()));
+        }
+        return findQueuedTicket(idempotencyKey, requestHash);
+    }
+
+    private Optional<PostingTicketDTO> findQueuedTicket(String idempotencyKey, String requestHash) {
+        Optional<String> ticketId = idempotencyService.findPendingTicket(idempotencyKey, requestHash);
+        if (ticketId.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<PostingTicketDTO> ticket = postingPipeline.getTicket(ticketId.get());
+        if (ticket.isPresent() && ticket.get().getStatus() != PostingTicketDTO.Status.FAILED) {
+            return ticket;
+        }
+        idempotencyService.release(idempotencyKey, ticketId.get());
+        return Optional.empty();
+    }
+
+    private PostingTicketDTO completedTicket(TransactionDTO transaction) {
+        return PostingTicketDTO.builder()
+                .status(PostingTicketDTO.Status.COMPLETED)
+                .completedAt(transaction.getTransactionDate())
+                .result(PostingItemResultDTO.builder()
+                        .success(true)
+                        .transactionId(transaction.getId())
+                        .referenceId(transaction.getReferenceId())
+                        .balanceAfterTransaction(transaction.getBalanceAfterTransaction())
+                        .build())
+                .build();
+    }
+
+    private Object[] requestFields(PostingInstruction instruction) {
+        if (instruction.getOperation() == PostingInstruction.Operation.TRANSFER) {
+            return new Object[] {instruction.getAccountNumber(), instruction.getToAccountNumber(),
+                    instruction.getAmount(), instruction.getDescription()};
+        }
+        return new Object[] {instruction.getAccountNumber(), instruction.getAmount(), instruction.getDescription()};
+    }
+
+    private TransactionDTO postIdempotently(String idempotencyKey, String operation, Object[] requestFields,
+                                            Supplier<TransactionDTO> posting) {
+        if (idempotencyKey == null) {
+            return lockingEngine.execute(posting);
+        }
+        
+        // A retry of a request that already committed is answered without locking any account
+        String requestHash = idempotencyService.fingerprint(operation, requestFields);
+        Optional<TransactionDTO> completed = idempotencyService.findCompleted(idempotencyKey, requestHash);
+        if (completed.isPresent()) {
+            return completed.get();
+        }
+        Optional<PostingTicketDTO> queued = findQueuedTicket(idempotencyKey, requestHash);
+        if (queued.isPresent()) {
+            throw new IllegalStateException("Idempotency key " + idempotencyKey
+                    + " belongs to a queued posting, see ticket " + queued.get().getTicketId());
+        }
+        
+        try {
+            return lockingEngine.execute(() -> {
+                TransactionDTO result = posting.get();
+                idempotencyService.record(idempotencyKey, operation, requestHash, result);
+                return result;
+            });
+        } catch (DataIntegrityViolationException ex) {
+            // Lost the race to a concurrent request with the same key; ours was rolled back
+            return idempotencyService.findCompleted(idempotencyKey, requestHash).orElseThrow(() -> ex);
+        }
+    }
+
+    private TransactionDTO postDeposit(DepositRequest depositRequest) {
+        // A sharded account is credited through its balance buckets without locking its row
+        Account account = lockingEngine.lockAccountsForPosting(List.of(), List.of(depositRequest.getAccountNumber()))
+                .get(depositRequest.getAccountNumber());
+        
+        Transaction transaction = ledgerPoster.deposit(account, depositRequest.getAmount(),
+                depositRequest.getDescription(), UUID.randomUUID().toString(), LocalDateTime.now());
         
-        transaction = transactionRepository.save(transaction);
+        ledgerPoster.persist(List.of(transaction));
         log.info("Deposit of {} processed for account {}", depositRequest.getAmount(), account.getAccountNumber());
         
         return transactionMapper.toDto(transaction);
     }
 
-    @Override
-    @Transactional
-    public TransactionDTO withdraw(WithdrawalRequest withdrawalRequest) {
-        Account account = findAccountByAccountNumber(withdrawalRequest.getAccountNumber());
-        
-        // Ensure account is active
-        validateAccountIsActive(account);
-        
-        // Check sufficient balance
-        if (account.getBalance().compareTo(withdrawalRequest.getAmount()) < 0) {
-            throw new InsufficientBalanceException("Insufficient balance for withdrawal from account " + account.getAccountNumber());
-        }
-        
-        // Update account balance
-        BigDecimal newBalance = account.getBalance().subtract(withdrawalRequest.getAmount());
-        account.setBalance(newBalance);
-        account = accountRepository.save(account);
-        
-        // Create transaction record
-        Transaction transaction = Transaction.builder()
-                .account(account)
-                .amount(withdrawalRequest.getAmount())
-                .transactionType(TransactionType.WITHDRAWAL)
-                .description(withdrawalRequest.getDescription())
-                .transactionDate(LocalDateTime.now())
-                .referenceId(UUID.randomUUID().toString())
-                .balanceAfterTransaction(newBalance)
-                .build();
+    private TransactionDTO postWithdrawal(WithdrawalRequest withdrawalRequest) {
+        Account account = lockAccount(withdrawalRequest.getAccountNumber());
+        
+        Transaction transaction = ledgerPoster.withdraw(account, withdrawalRequest.getAmount(),
+                withdrawalRequest.getDescription(), UUID.randomUUID().toString(), LocalDateTime.now());
         
-        transaction = transactionRepository.save(transaction);
+        ledgerPoster.persist(List.of(transaction));
         log.info("Withdrawal of {} processed for account {}", withdrawalRequest.getAmount(), account.getAccountNumber());
         
         return transactionMapper.toDto(transaction);
     }
 
-    @Override
-    @Transactional
-    public TransactionDTO transfer(TransferRequest transferRequest) {
-        Account sourceAccount = findAccountByAccountNumber(transferRequest.getFromAccountNumber());
-        Account destinationAccount = findAccountByAccountNumber(transferRequest.getToAccountNumber());
-        
-        // Ensure accounts are active
-        validateAccountIsActive(sourceAccount);
-        validateAccountIsActive(destinationAccount);
-        
-        // Check sufficient balance
-        if (sourceAccount.getBalance().compareTo(transferRequest.getAmount()) < 0) {
-            throw new InsufficientBalanceException("Insufficient balance for transfer from account " + sourceAccount.getAccountNumber());
-        }
-        
-        // Generate a common reference ID for both transactions
-        String referenceId = UUID.randomUUID().toString();
-        LocalDateTime transactionDate = LocalDateTime.now();
-        
-        // Update source account balance
-        BigDecimal sourceNewBalance = sourceAccount.getBalance().subtract(transferRequest.getAmount());
-        sourceAccount.setBalance(sourceNewBalance);
-        sourceAccount = accountRepository.save(sourceAccount);
-        
-        // Create outgoing transaction
-        Transaction outgoingTransaction = Transaction.builder()
-                .account(sourceAccount)
-                .amount(transferRequest.getAmount())
-                .transactionType(TransactionType.TRANSFER_OUT)
-                .description("Transfer to " + destinationAccount.getAccountNumber() + 
-                        (transferRequest.getDescription() != null ? ": " + transferRequest.getDescription() : ""))
-                .transactionDate(transactionDate)
-                .referenceId(referenceId)
-                .balanceAfterTransaction(sourceNewBalance)
-                .build();
+    private TransactionDTO postTransfer(TransferRequest transferRequest) {
+        // Rows are locked up front, in account id order, before any balance is read; a sharded
+        // destination is only read, since the credit goes to one of its balance buckets
+        Map<String, Account> accounts = lockingEngine.lockAccountsForPosting(
+                List.of(transferRequest.getFromAccountNumber()), List.of(transferRequest.getToAccountNumber()));
+        Account sourceAccount = accounts.get(transferRequest.getFromAccountNumber());
+        Account destinationAccount = accounts.get(transferRequest.getToAccountNumber());
         
-        outgoingTransaction = transactionRepository.save(outgoingTransaction);
-        
-        // Update destination account balance
-        BigDecimal destNewBalance = destinationAccount.getBalance().add(transferRequest.getAmount());
-        destinationAccount.setBalance(destNewBalance);
-        destinationAccount = accountRepository.save(destinationAccount);
-        
-        // Create incoming transaction
-        Transaction incomingTransaction = Transaction.builder()
-                .account(destinationAccount)
-                .amount(transferRequest.getAmount())
-                .transactionType(TransactionType.TRANSFER_IN)
-                .description("Transfer from " + sourceAccount.getAccountNumber() + 
-                        (transferRequest.getDescription() != null ? ": " + transferRequest.getDescription() : ""))
-                .transactionDate(transactionDate)
-                .referenceId(referenceId)
-                .balanceAfterTransaction(destNewBalance)
-                .build();
+        // Both legs share a common reference ID
+        List<Transaction> transactions = ledgerPoster.transfer(sourceAccount, destinationAccount,
+                transferRequest.getAmount(), transferRequest.getDescription(),
+                UUID.randomUUID().toString(), LocalDateTime.now());
         
-        transactionRepository.save(incomingTransaction);
+        ledgerPoster.persist(transactions);
         
         log.info("Transfer of {} from account {} to account {} processed", 
                 transferRequest.getAmount(), sourceAccount.getAccountNumber(), destinationAccount.getAccountNumber());
         
-        return transactionMapper.toDto(outgoingTransaction);
+        return transactionMapper.toDto(transactions.get(0));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Map<String, BigDecimal> getDailyTransactionSummary(LocalDate date) {
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
-        
         Map<String, BigDecimal> summary = new HashMap<>();
         
-        // Get total deposits
-        BigDecimal totalDeposits = transactionRepository.sumAmountByTypeAndDateBetween(
-                TransactionType.DEPOSIT, startOfDay, endOfDay);
-        summary.put("totalDeposits", totalDeposits != null ? totalDeposits : BigDecimal.ZERO);
-        
-        // Get total withdrawals
-        BigDecimal totalWithdrawals = transactionRepository.sumAmountByTypeAndDateBetween(
-                TransactionType.WITHDRAWAL, startOfDay, endOfDay);
-        summary.put("totalWithdrawals", totalWithdrawals != null ? totalWithdrawals : BigDecimal.ZERO);
+        // Totals for every transaction type from the daily rollups (totalDeposits, totalWithdrawals, ...)
+        Map<TransactionType, BigDecimal> totals = dailyRollupService.getTotalsByType(date, date);
+        totals.forEach((type, amount) -> summary.put(type.getSummaryKey(), amount));
         
         // Count active accounts (could be moved to AccountService)
-        long activeAccountCount = accountRepository.findByStatus(AccountStatus.ACTIVE).size();
+        long activeAccountCount = accountRepository.countByStatus(AccountStatus.ACTIVE);
         summary.put("activeAccountCount", BigDecimal.valueOf(activeAccountCount));
         
         return summary;
     }
 
-    @Override
-    public byte[] generateTransactionReport(LocalDate startDate, LocalDate endDate, String format) {
-        // Implementation for generating CSV or PDF report would go here
-        // For simplicity, we'll just return a placeholder
-        return "Transaction Report from ".concat(startDate.toString())
-                .concat(" to ").concat(endDate.toString())
-                .getBytes();
-    }
-    
-    private Account findAccountByAccountNumber(String accountNumber) {
-        return accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new ResourceNotFoundException("Account not found with account number: " + accountNumber));
-    }
-    
-    private void validateAccountIsActive(Account account) {
-        if (account.getStatus() != AccountStatus.ACTIVE) {
-            throw new IllegalStateException("Account " + account.getAccountNumber() + " is not active. Current status: " + account.getStatus());
-        }
+    private Account lockAccount(String accountNumber) {
+        return lockingEngine.lockAccounts(accountNumber).get(accountNumber);
     }
+
 } 
\ No newline at end of file
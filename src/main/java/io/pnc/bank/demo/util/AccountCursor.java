@@ -0,0 +1,34 @@
+package io.pnc.bank.demo.util;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque position in an account listing: the sort the page was read with, and the sort value and
+// id of the last account returned. A cursor is only valid with the same sort and direction.
+@Value
+public class AccountCursor {
+
+    String sort;
+    String value;
+    Long id;
+
+    public String encode() {
+        String raw = sort + "|" + id + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static AccountCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new AccountCursor(parts[0], parts[2], Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
\ No newline at end of file
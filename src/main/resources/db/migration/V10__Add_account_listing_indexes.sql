@@ -0,0 +1,8 @@
+-- Keyset pagination of the account listing: one index per sort order, each ending in id so the
+-- tie-breaker is covered, and a status-led one for the common "all ACTIVE accounts" filter.
+-- Sorting by account number uses the unique constraint's index.
+DROP INDEX IF EXISTS idx_accounts_status;
+CREATE INDEX idx_accounts_status_id ON accounts(status, id);
+CREATE INDEX idx_accounts_holder_id ON accounts(account_holder, id);
+CREATE INDEX idx_accounts_balance_id ON accounts(balance, id);
+CREATE INDEX idx_accounts_created_date_id ON accounts(created_date, id);
\ No newline at end of file
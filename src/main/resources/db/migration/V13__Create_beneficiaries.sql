@@ -0,0 +1,14 @@
+-- The Beneficiary entity never had a table, so schema validation (ddl-auto=validate on H2) stopped
+-- the application from starting.
+CREATE TABLE beneficiaries (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255),
+    account_number VARCHAR(255),
+    email VARCHAR(255),
+    description VARCHAR(255),
+    account_id BIGINT,
+    created_at TIMESTAMP,
+    FOREIGN KEY (account_id) REFERENCES accounts(id)
+);
+
+CREATE INDEX idx_beneficiaries_account_id ON beneficiaries(account_id);
\ No newline at end of file
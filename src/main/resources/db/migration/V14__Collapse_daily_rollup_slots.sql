@@ -0,0 +1,23 @@
+-- Rollup deltas are applied after commit by a single flusher, so no posting waits on a rollup row
+-- and spreading a day's totals over slots no longer buys anything. Fold every (date, transaction
+-- type, account type) into its lowest slot, then drop the column.
+UPDATE daily_transaction_rollups r
+SET total_amount = (SELECT SUM(s.total_amount) FROM daily_transaction_rollups s
+                    WHERE s.rollup_date = r.rollup_date AND s.transaction_type = r.transaction_type
+                      AND s.account_type = r.account_type),
+    transaction_count = (SELECT SUM(s.transaction_count) FROM daily_transaction_rollups s
+                         WHERE s.rollup_date = r.rollup_date AND s.transaction_type = r.transaction_type
+                           AND s.account_type = r.account_type)
+WHERE r.slot = (SELECT MIN(s.slot) FROM daily_transaction_rollups s
+                WHERE s.rollup_date = r.rollup_date AND s.transaction_type = r.transaction_type
+                  AND s.account_type = r.account_type);
+
+DELETE FROM daily_transaction_rollups r
+WHERE r.slot > (SELECT MIN(s.slot) FROM daily_transaction_rollups s
+                WHERE s.rollup_date = r.rollup_date AND s.transaction_type = r.transaction_type
+                  AND s.account_type = r.account_type);
+
+ALTER TABLE daily_transaction_rollups DROP CONSTRAINT uk_daily_transaction_rollups;
+ALTER TABLE daily_transaction_rollups DROP COLUMN slot;
+ALTER TABLE daily_transaction_rollups ADD CONSTRAINT uk_daily_transaction_rollups
+    UNIQUE (rollup_date, transaction_type, account_type);
\ No newline at end of file
@@ -0,0 +1,4 @@
+-- Keys sent with "Prefer: respond-async" are recorded when the posting is queued, before it has a
+-- transaction. The pipeline writer fills in transaction_id inside the posting's own transaction.
+ALTER TABLE idempotency_keys ALTER COLUMN transaction_id DROP NOT NULL;
+ALTER TABLE idempotency_keys ADD COLUMN ticket_id VARCHAR(36);
\ No newline at end of file
@@ -0,0 +1,3 @@
+-- Optimistic locking support for account balance updates
+
+ALTER TABLE accounts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
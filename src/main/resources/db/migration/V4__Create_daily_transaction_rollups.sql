@@ -0,0 +1,25 @@
+-- Pre-aggregated daily totals, maintained incrementally by the posting path.
+-- Each (date, type, account type) is spread over a few slots (account_id mod slots)
+-- so concurrent postings do not all queue on the same row.
+
+CREATE TABLE daily_transaction_rollups (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    rollup_date DATE NOT NULL,
+    transaction_type VARCHAR(20) NOT NULL,
+    account_type VARCHAR(20) NOT NULL,
+    slot INT NOT NULL,
+    total_amount DECIMAL(19, 2) NOT NULL DEFAULT 0.00,
+    transaction_count BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_daily_transaction_rollups UNIQUE (rollup_date, transaction_type, account_type, slot)
+);
+
+-- Backfill existing history using the default of 8 slots (bank.rollup.slots)
+INSERT INTO daily_transaction_rollups (rollup_date, transaction_type, account_type, slot, total_amount, transaction_count)
+SELECT rollup_date, transaction_type, account_type, slot, SUM(amount), COUNT(*)
+FROM (
+    SELECT CAST(t.transaction_date AS DATE) AS rollup_date, t.transaction_type AS transaction_type,
+           a.account_type AS account_type, MOD(t.account_id, 8) AS slot, t.amount AS amount
+    FROM transactions t
+    JOIN accounts a ON a.id = t.account_id
+) day_rows
+GROUP BY rollup_date, transaction_type, account_type, slot;
@@ -0,0 +1,2 @@
+-- Serves keyset pagination of an account's history (newest first) without sorting or OFFSET scans
+CREATE INDEX idx_transactions_account_date_id ON transactions(account_id, transaction_date, id);
@@ -0,0 +1,12 @@
+-- Client-supplied Idempotency-Key values for single postings. A key row is written in the same
+-- transaction as the posting it guards, so it exists exactly when the posting committed.
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(100) PRIMARY KEY,
+    operation VARCHAR(20) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    transaction_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (transaction_id) REFERENCES transactions(id)
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys(created_at);
\ No newline at end of file
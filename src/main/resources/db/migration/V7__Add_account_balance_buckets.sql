@@ -0,0 +1,12 @@
+-- Opt-in sharded balances for hot accounts. With balance_buckets > 0 credits are added to one of
+-- that many bucket rows instead of accounts.balance, which then holds the consolidated part only.
+
+ALTER TABLE accounts ADD COLUMN balance_buckets INT NOT NULL DEFAULT 0;
+
+CREATE TABLE account_balance_buckets (
+    account_id BIGINT NOT NULL,
+    bucket INT NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (account_id, bucket),
+    FOREIGN KEY (account_id) REFERENCES accounts(id) ON DELETE CASCADE
+);
\ No newline at end of file
@@ -0,0 +1,12 @@
+-- End-of-day balance per account. Statements and as-of balances start from the nearest checkpoint
+-- and only add the movements in between, instead of replaying the account's whole history.
+CREATE TABLE account_balance_checkpoints (
+    account_id BIGINT NOT NULL,
+    checkpoint_date DATE NOT NULL,
+    balance DECIMAL(19, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (account_id, checkpoint_date),
+    FOREIGN KEY (account_id) REFERENCES accounts(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_account_balance_checkpoints_date ON account_balance_checkpoints(checkpoint_date);
\ No newline at end of file
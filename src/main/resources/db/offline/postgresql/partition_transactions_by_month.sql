@@ -0,0 +1,105 @@
+-- Converts transactions into a table range-partitioned by month (PostgreSQL 14+). Not a Flyway
+-- migration: copying the whole table inside one migration would hold it for as long as the copy
+-- takes, at boot. Run it by hand with psql instead, in three steps:
+--
+--   1. psql -f partition_transactions_by_month.sql
+--      Creates the empty transactions_partitioned table, its indexes, one partition per month from
+--      the oldest row to three months ahead, and the two procedures below. Takes no lock on
+--      transactions.
+--   2. CALL copy_transactions_to_partitions(date_trunc('day', now())::timestamp);
+--      Run while the application is up. Copies every row dated before the cutoff one day per
+--      transaction, so locks, WAL and undo stay bounded. Each day is deleted and copied again, so
+--      after an interruption resume with the second argument set to the last day it reported.
+--   3. CALL swap_partitioned_transactions(<the same cutoff>);
+--      Run with postings stopped (a short maintenance window). Copies the rows dated on or after
+--      the cutoff, then swaps the tables. The old table stays as transactions_unpartitioned until
+--      it is dropped by hand.
+--
+-- Rows dated before the cutoff must not change between steps 2 and 3: keep the archive job
+-- (bank.archive.enabled) and any back-dated imports off until the swap is done.
+--
+-- There is no DEFAULT partition: it would stop the planner from treating the partitions as
+-- ordered and rule out detaching concurrently. TransactionPartitionMaintenance creates months
+-- ahead of time once the table is partitioned, and does nothing before.
+
+CREATE TABLE transactions_partitioned (
+    id BIGINT NOT NULL,
+    account_id BIGINT NOT NULL REFERENCES accounts(id),
+    transaction_type VARCHAR(20) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    reference_id VARCHAR(36),
+    description VARCHAR(255),
+    transaction_date TIMESTAMP NOT NULL,
+    balance_after_transaction DECIMAL(19, 2),
+    PRIMARY KEY (id, transaction_date)
+) PARTITION BY RANGE (transaction_date);
+
+DO $$
+DECLARE
+    partition_start DATE := date_trunc('month', LEAST(
+            COALESCE((SELECT MIN(transaction_date) FROM transactions), now()),
+            now() - INTERVAL '12 months'))::DATE;
+    last_month DATE := date_trunc('month', now() + INTERVAL '3 months')::DATE;
+BEGIN
+    WHILE partition_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF transactions_partitioned FOR VALUES FROM (%L) TO (%L)',
+                'transactions_' || to_char(partition_start, '"y"YYYY"m"MM'), partition_start, partition_start + INTERVAL '1 month');
+        partition_start := partition_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+-- Built now, on empty partitions, so step 3 does not have to build them under the lock. They get
+-- their final names in the swap, once the old table's indexes are out of the way. The
+-- (account_id, transaction_date, id) index also serves lookups by account alone.
+CREATE INDEX idx_transactions_partitioned_account_date_id ON transactions_partitioned(account_id, transaction_date, id);
+CREATE INDEX idx_transactions_partitioned_transaction_date ON transactions_partitioned(transaction_date);
+CREATE INDEX idx_transactions_partitioned_reference_id ON transactions_partitioned(reference_id);
+
+CREATE OR REPLACE PROCEDURE copy_transactions_to_partitions(cutoff TIMESTAMP, resume_from TIMESTAMP DEFAULT NULL)
+LANGUAGE plpgsql AS $$
+DECLARE
+    day_start TIMESTAMP := date_trunc('day', COALESCE(resume_from, (SELECT MIN(transaction_date) FROM transactions)));
+    day_end TIMESTAMP;
+BEGIN
+    WHILE day_start IS NOT NULL AND day_start < cutoff LOOP
+        day_end := LEAST(day_start + INTERVAL '1 day', cutoff);
+        DELETE FROM transactions_partitioned WHERE transaction_date >= day_start AND transaction_date < day_end;
+        INSERT INTO transactions_partitioned
+        SELECT id, account_id, transaction_type, amount, reference_id, description, transaction_date, balance_after_transaction
+        FROM transactions WHERE transaction_date >= day_start AND transaction_date < day_end;
+        COMMIT;
+        RAISE NOTICE 'Copied transactions of %', day_start::DATE;
+        day_start := day_end;
+    END LOOP;
+END $$;
+
+CREATE OR REPLACE PROCEDURE swap_partitioned_transactions(cutoff TIMESTAMP)
+LANGUAGE plpgsql AS $$
+BEGIN
+    LOCK TABLE transactions IN ACCESS EXCLUSIVE MODE;
+
+    DELETE FROM transactions_partitioned WHERE transaction_date >= cutoff;
+    INSERT INTO transactions_partitioned
+    SELECT id, account_id, transaction_type, amount, reference_id, description, transaction_date, balance_after_transaction
+    FROM transactions WHERE transaction_date >= cutoff;
+
+    -- A unique key on a partitioned table must include the partition key, so transactions(id) can
+    -- no longer be referenced. Ids remain unique through transactions_seq.
+    ALTER TABLE idempotency_keys DROP CONSTRAINT IF EXISTS idempotency_keys_transaction_id_fkey;
+
+    ALTER TABLE transactions RENAME TO transactions_unpartitioned;
+    ALTER TABLE transactions_unpartitioned RENAME CONSTRAINT transactions_pkey TO transactions_unpartitioned_pkey;
+    ALTER INDEX IF EXISTS idx_transactions_account_date_id RENAME TO idx_transactions_unpartitioned_account_date_id;
+    ALTER INDEX IF EXISTS idx_transactions_transaction_date RENAME TO idx_transactions_unpartitioned_transaction_date;
+    ALTER INDEX IF EXISTS idx_transactions_reference_id RENAME TO idx_transactions_unpartitioned_reference_id;
+
+    ALTER TABLE transactions_partitioned RENAME TO transactions;
+    ALTER TABLE transactions RENAME CONSTRAINT transactions_partitioned_pkey TO transactions_pkey;
+    ALTER TABLE transactions RENAME CONSTRAINT transactions_partitioned_account_id_fkey TO transactions_account_id_fkey;
+    ALTER INDEX idx_transactions_partitioned_account_date_id RENAME TO idx_transactions_account_date_id;
+    ALTER INDEX idx_transactions_partitioned_transaction_date RENAME TO idx_transactions_transaction_date;
+    ALTER INDEX idx_transactions_partitioned_reference_id RENAME TO idx_transactions_reference_id;
+    COMMIT;
+
+    ANALYZE transactions;
+END $$;
\ No newline at end of file
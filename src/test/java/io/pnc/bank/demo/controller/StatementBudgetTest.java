@@ -0,0 +1,118 @@
+package io.pnc.bank.demo.controller;
+
+import io.pnc.bank.demo.dto.AccountDTO;
+import io.pnc.bank.demo.dto.BeneficiaryDTO;
+import io.pnc.bank.demo.dto.CreateAccountRequest;
+import io.pnc.bank.demo.dto.CreateBeneficiaryRequest;
+import io.pnc.bank.demo.dto.DepositRequest;
+import io.pnc.bank.demo.dto.TransactionDTO;
+import io.pnc.bank.demo.model.AccountType;
+import io.pnc.bank.demo.monitoring.StatementBudget;
+import io.pnc.bank.demo.monitoring.StatementCounter;
+import io.pnc.bank.demo.service.AccountService;
+import io.pnc.bank.demo.service.BeneficiaryService;
+import io.pnc.bank.demo.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Calls every handler annotated with @StatementBudget and fails when one issues more statements
+// than its budget. MockMvc runs the request on the test thread, so the counter still holds the
+// request's figures once perform() returns.
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(roles = "ADMIN")
+class StatementBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BeneficiaryService beneficiaryService;
+
+    @Test
+    void everyBudgetedEndpointStaysWithinItsBudget() throws Exception {
+        AccountDTO account = accountService.createAccount(CreateAccountRequest.builder()
+                .accountNumber("9000000008")
+                .accountHolder("Budget Holder")
+                .accountType(AccountType.CHECKING)
+                .initialDeposit(BigDecimal.valueOf(100))
+                .build());
+        TransactionDTO transaction = null;
+        for (int i = 0; i < 5; i++) {
+            transaction = transactionService.deposit(DepositRequest.builder()
+                    .accountNumber(account.getAccountNumber())
+                    .amount(BigDecimal.TEN)
+                    .description("Budget deposit " + i)
+                    .build());
+        }
+        BeneficiaryDTO beneficiary = beneficiaryService.createBeneficiary(CreateBeneficiaryRequest.builder()
+                .name("Budget Beneficiary")
+                .accountId(String.valueOf(account.getId()))
+                .email("budget@example.com")
+                .build());
+
+        List<String> uris = List.of(
+                "/api/accounts?size=3&includeTotal=true",
+                "/api/accounts/search?q=Budget",
+                "/api/accounts/search?q=Budget&fuzzy=true",
+                "/api/transactions/account/" + account.getId() + "?page=0&size=3",
+                "/api/transactions/account/" + account.getId() + "/history?size=3&includeTotal=true",
+                "/api/transactions/account/number/" + account.getAccountNumber() + "?page=0&size=3",
+                "/api/transactions/" + transaction.getId(),
+                "/api/beneficiaries/account/" + account.getId(),
+                "/api/beneficiaries/" + beneficiary.getId(),
+                "/accounts?size=3&type=CHECKING",
+                "/accounts/" + account.getId() + "?size=3");
+
+        Set<Method> covered = new HashSet<>();
+        for (String uri : uris) {
+            MvcResult result = mockMvc.perform(get(uri)).andExpect(status().isOk()).andReturn();
+            HandlerMethod handler = (HandlerMethod) result.getHandler();
+            StatementBudget budget = handler.getMethodAnnotation(StatementBudget.class);
+            assertThat(budget).as("@StatementBudget on the handler of %s", uri).isNotNull();
+            assertThat(statementCounter.snapshot().statements())
+                    .as("SQL statements issued by GET %s", uri)
+                    .isLessThanOrEqualTo(budget.value());
+            covered.add(handler.getMethod());
+        }
+
+        // A newly budgeted endpoint has to be added to the list above
+        Set<Method> budgeted = handlerMapping.getHandlerMethods().values().stream()
+                .filter(handler -> handler.hasMethodAnnotation(StatementBudget.class))
+                .map(HandlerMethod::getMethod)
+                .collect(Collectors.toSet());
+        assertThat(covered).containsExactlyInAnyOrderElementsOf(budgeted);
+    }
+}
\ No newline at end of file
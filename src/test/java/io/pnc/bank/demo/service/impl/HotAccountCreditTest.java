@@ -0,0 +1,107 @@
+package io.pnc.bank.demo.service.impl;
+
+import io.pnc.bank.demo.dto.AccountDTO;
+import io.pnc.bank.demo.dto.CreateAccountRequest;
+import io.pnc.bank.demo.dto.DepositRequest;
+import io.pnc.bank.demo.model.AccountType;
+import io.pnc.bank.demo.service.AccountService;
+import io.pnc.bank.demo.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Credits to a sharded account must not queue behind each other: while one credit's transaction
+// is still open, others to the same account commit. Each credit adds to a balance bucket picked at
+// random, so a few may land on the open one's bucket and wait; without buckets all of them would.
+@SpringBootTest
+class HotAccountCreditTest {
+
+    private static final int CONCURRENT_CREDITS = 5;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void creditsToShardedAccountDoNotWaitForAnOpenCredit() throws Exception {
+        AccountDTO account = accountService.createAccount(CreateAccountRequest.builder()
+                .accountNumber("9000000012")
+                .accountHolder("Hot Account")
+                .accountType(AccountType.CHECKING)
+                .initialDeposit(BigDecimal.ZERO)
+                .build());
+        accountService.updateBalanceBuckets(account.getId(), 32);
+
+        CountDownLatch posted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> open = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    transactionService.deposit(deposit(account));
+                    posted.countDown();
+                    await(release);
+                }));
+        assertThat(posted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_CREDITS);
+        try {
+            ExecutorCompletionService<Object> credits = new ExecutorCompletionService<>(executor);
+            List<Future<Object>> submitted = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_CREDITS; i++) {
+                submitted.add(credits.submit(() -> transactionService.deposit(deposit(account))));
+            }
+
+            // Well under the lock timeout: a credit finishing here did not wait for the open one
+            Future<Object> first = credits.poll(5, TimeUnit.SECONDS);
+            assertThat(first).as("a credit committed while another was open").isNotNull();
+            first.get();
+
+            release.countDown();
+            open.get(30, TimeUnit.SECONDS);
+            for (Future<Object> credit : submitted) {
+                credit.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        assertThat(accountService.getAccountById(account.getId()).getBalance())
+                .isEqualByComparingTo(BigDecimal.TEN.multiply(BigDecimal.valueOf(CONCURRENT_CREDITS + 1)));
+    }
+
+    private static DepositRequest deposit(AccountDTO account) {
+        return DepositRequest.builder()
+                .accountNumber(account.getAccountNumber())
+                .amount(BigDecimal.TEN)
+                .description("Hot account credit")
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file